@@ -6,5 +6,6 @@ module se.kth.alialaa.labb4 {
     opens se.kth.alialaa.labb4 to javafx.fxml;
     exports se.kth.alialaa.labb4;
     exports se.kth.alialaa.labb4.model;
+    exports se.kth.alialaa.labb4.model.solver;
     opens se.kth.alialaa.labb4.model to javafx.fxml;
 }
\ No newline at end of file
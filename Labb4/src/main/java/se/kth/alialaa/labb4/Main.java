@@ -2,50 +2,154 @@ package se.kth.alialaa.labb4;
 
 import javafx.application.Application;
 import javafx.scene.Scene;
+import javafx.scene.control.Alert;
+import javafx.scene.control.ButtonType;
 import javafx.scene.layout.BorderPane;
 import javafx.stage.Stage;
 import se.kth.alialaa.labb4.controller.Controller;
 import se.kth.alialaa.labb4.model.Cells;
+import se.kth.alialaa.labb4.model.MoveJournal;
+import se.kth.alialaa.labb4.model.PuzzleLibrary;
+import se.kth.alialaa.labb4.model.PuzzlePool;
 import se.kth.alialaa.labb4.model.SudokuUtilities;
+import se.kth.alialaa.labb4.view.BoardView;
 import se.kth.alialaa.labb4.view.Buttons;
+import se.kth.alialaa.labb4.view.CanvasGridView;
 import se.kth.alialaa.labb4.view.GridView;
 import se.kth.alialaa.labb4.view.MenuView;
 
-import java.util.concurrent.ThreadPoolExecutor;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 public class Main extends Application{
-    private GridView gridView;
+    private static final int POOL_WAIT_SECONDS = 10;
+    private BoardView gridView;
     private Buttons buttons;
     private MenuView menuView;
     private BorderPane borderpane;
     private Controller controller;
     private Cells model;
+    private MoveJournal journal;
     public static void main(String[] arg) {
         launch();
     }
 
+    /**
+     * Opens the puzzle library and waits for the first puzzles of the pool, before the window is
+     * shown. Runs on the launcher thread, so the first game is not generated on the application thread.
+     */
+    @Override
+    public void init() throws InterruptedException {
+        openPuzzleLibrary();
+        if (!PuzzlePool.getDefault().awaitReady(POOL_WAIT_SECONDS, TimeUnit.SECONDS)) {
+            System.err.println("The puzzle pool is not ready, the first game is generated on the application thread");
+        }
+    }
+
     @Override
     public void start(Stage stage) throws Exception {
-        this.model = new Cells(SudokuUtilities.SudokuLevel.EASY);
+        this.model = restoreAutosave();
+        if (model == null) {
+            this.model = new Cells(SudokuUtilities.SudokuLevel.EASY);
+        }
         initializeTheView();
         controller = new Controller(model,gridView,buttons,menuView,stage);
+        startAutosave();
 
         Scene scene = new Scene(borderpane,662,572);
+        gridView.addKeyHandler(scene);
         stage.sizeToScene();
         stage.setResizable(false);
         stage.setScene(scene);
         stage.show();
     }
 
+    /**
+     * Writes the last moves to the autosave journal before the application exits.
+     */
+    @Override
+    public void stop() {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    /**
+     * Offers to continue the autosaved game, if there is an unfinished one.
+     *
+     * @return The autosaved game if the user wants it, null otherwise.
+     */
+    private Cells restoreAutosave() {
+        Cells saved;
+        try {
+            saved = MoveJournal.restore(MoveJournal.defaultDirectory());
+        } catch (IOException e) {
+            System.err.println("Could not restore the autosaved game: " + e.getMessage());
+            return null;
+        }
+        if (saved == null || saved.isSolved()) {
+            return null;
+        }
+        Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
+        alert.setTitle("Restore game");
+        alert.setHeaderText("Continue the last game?");
+        alert.setContentText("Your last game was not finished. Do you want to continue it?");
+        Optional<ButtonType> answer = alert.showAndWait();
+        return answer.isPresent() && answer.get() == ButtonType.OK ? saved : null;
+    }
+
+    /**
+     * Starts journaling every move of the game, so it can be restored after a crash.
+     */
+    private void startAutosave() {
+        try {
+            journal = new MoveJournal(MoveJournal.defaultDirectory());
+            journal.attach(model);
+            controller.setMoveJournal(journal);
+        } catch (IOException e) {
+            System.err.println("Autosave is off: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Draws new puzzles from the library file named by the system property sudoku.library, if set.
+     * Puzzles are generated if the file cannot be opened.
+     */
+    private void openPuzzleLibrary() {
+        String path = System.getProperty("sudoku.library");
+        if (path != null) {
+            try {
+                SudokuUtilities.setPuzzleLibrary(PuzzleLibrary.open(Path.of(path)));
+            } catch (IOException e) {
+                System.err.println("Could not open puzzle library " + path + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Creates the view of the grid chosen by the system property sudoku.renderer: "canvas" draws
+     * the grid on a single canvas, anything else shows a label for every square.
+     *
+     * @return The view of the grid.
+     */
+    private BoardView makeBoardView() {
+        if ("canvas".equals(System.getProperty("sudoku.renderer"))) {
+            return new CanvasGridView(model);
+        }
+        return new GridView(model);
+    }
+
     private void initializeTheView() {
-        this.gridView = new GridView(model);
+        this.gridView = makeBoardView();
         this.buttons = new Buttons();
         this.menuView = new MenuView();
         this.borderpane = new BorderPane();
 
         borderpane.setLeft(buttons.getLeftVBox());
         borderpane.setRight(buttons.getRightVBox());
-        borderpane.setCenter(gridView.getNumberPane());
+        borderpane.setCenter(gridView.getNode());
         borderpane.setTop(menuView.getMenuBar());
 
     }
@@ -0,0 +1,80 @@
+package se.kth.alialaa.labb4.controller;
+
+/**
+ * One change of the game asked for by the player, from a click, a key or a button.
+ * Every input is turned into a command and applied to the model by {@link Controller#dispatch(Command)}.
+ *
+ * @param type   What to do.
+ * @param row    The row of the cell, or -1 when the command is not about one cell.
+ * @param col    The column of the cell, or -1 when the command is not about one cell.
+ * @param number The number to guess or note (1-9), only used by GUESS and NOTE.
+ */
+public record Command(Type type, int row, int col, int number) {
+
+    /**
+     * The kinds of commands.
+     */
+    public enum Type {GUESS, CLEAR, HINT, SMART_HINT, CLEAR_ALL, NOTE}
+
+    /**
+     * Creates a command guessing a number in a cell.
+     *
+     * @param row    The row of the cell.
+     * @param col    The column of the cell.
+     * @param number The number to guess (1-9).
+     * @return The command.
+     */
+    public static Command guess(int row, int col, int number) {
+        return new Command(Type.GUESS, row, col, number);
+    }
+
+    /**
+     * Creates a command clearing the guess of a cell.
+     *
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @return The command.
+     */
+    public static Command clear(int row, int col) {
+        return new Command(Type.CLEAR, row, col, 0);
+    }
+
+    /**
+     * Creates a command adding a number to the pencil marks of a cell, or removing it.
+     *
+     * @param row    The row of the cell.
+     * @param col    The column of the cell.
+     * @param number The number to note (1-9).
+     * @return The command.
+     */
+    public static Command note(int row, int col, int number) {
+        return new Command(Type.NOTE, row, col, number);
+    }
+
+    /**
+     * Creates a command filling a random empty or wrong cell with the right number.
+     *
+     * @return The command.
+     */
+    public static Command hint() {
+        return new Command(Type.HINT, -1, -1, 0);
+    }
+
+    /**
+     * Creates a command filling the cell a human solver would deduce next with the right number.
+     *
+     * @return The command.
+     */
+    public static Command smartHint() {
+        return new Command(Type.SMART_HINT, -1, -1, 0);
+    }
+
+    /**
+     * Creates a command clearing every guess.
+     *
+     * @return The command.
+     */
+    public static Command clearAll() {
+        return new Command(Type.CLEAR_ALL, -1, -1, 0);
+    }
+}
@@ -1,37 +1,60 @@
 package se.kth.alialaa.labb4.controller;
 
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
+import javafx.event.ActionEvent;
+import javafx.event.EventHandler;
 import javafx.scene.control.Alert;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
+import javafx.util.Duration;
+import se.kth.alialaa.labb4.model.Board;
 import se.kth.alialaa.labb4.model.Cells;
+import se.kth.alialaa.labb4.model.MoveJournal;
 import se.kth.alialaa.labb4.model.SudokuIO;
 import se.kth.alialaa.labb4.model.SudokuUtilities;
+import se.kth.alialaa.labb4.model.solver.HumanSolver;
 import se.kth.alialaa.labb4.view.Buttons;
-import se.kth.alialaa.labb4.view.GridView;
+import se.kth.alialaa.labb4.view.BoardView;
 import se.kth.alialaa.labb4.view.MenuView;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
 /**
  * Represents the controller for the Sudoku application, handling interactions between the model and views.
  */
 public class Controller {
     private Cells model;
-    private GridView gridView;
+    private BoardView gridView;
     private Buttons buttons;
     private MenuView menuView;
     private Stage stage;
+    private MoveJournal journal;
+    private boolean renderPending;      // a render of the grid is queued on the application thread
+    private boolean autoNotes;          // the pencil marks are filled automatically, in every game
+    private Timeline solveAnimation;    // fills one square per frame while solving step by step, or null
+    private Iterator<HumanSolver.Step> solveSteps;  // the steps left of the animated solve, pulled one at a time
+    private static final Duration SOLVE_STEP_TIME = Duration.millis(300);
+    private final ExecutorService fileExecutor = Executors.newVirtualThreadPerTaskExecutor();   // saving and loading
 
     /**
      * Constructs a new Controller with the specified model, grid view, buttons, menu view, and stage.
      *
      * @param model     The model representing the Sudoku game.
-     * @param gridView  The grid view displaying the Sudoku board.
+     * @param gridView  The view displaying the Sudoku board, a GridView or a CanvasGridView.
      * @param buttons   The buttons view providing user interaction buttons.
      * @param menuView  The menu view providing menu options.
      * @param stage     The JavaFX stage for the application.
      */
-    public Controller(Cells model, GridView gridView, Buttons buttons, MenuView menuView, Stage stage) {
+    public Controller(Cells model, BoardView gridView, Buttons buttons, MenuView menuView, Stage stage) {
         this.model = model;
         this.gridView = gridView;
         this.buttons = buttons;
@@ -44,20 +67,111 @@ public class Controller {
     }
 
     /**
-     * Handles the event when a square on the grid is clicked, updating the grid view.
+     * Sets the journal autosaving the game, which follows the game when another one is loaded.
+     *
+     * @param journal The journal, or null for no autosave.
+     */
+    public void setMoveJournal(MoveJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Applies a command to the model, stopping a running animated solve. The grid is rendered
+     * once after all commands of the current event, however many cells they change.
+     *
+     * @param command The command to apply.
+     */
+    public void dispatch(Command command) {
+        stopSolve();
+        apply(command);
+    }
+
+    private void apply(Command command) {
+        gridView.setShowMistakes(false);
+        switch (command.type()) {
+            case GUESS:
+                model.guess(command.row(), command.col(), command.number());
+                result();
+                break;
+            case CLEAR:
+                model.clear(command.row(), command.col());
+                break;
+            case HINT:
+                model.hint();
+                result();
+                break;
+            case SMART_HINT:
+                model.smartHint();
+                result();
+                break;
+            case CLEAR_ALL:
+                model.clearAll();
+                break;
+            case NOTE:
+                model.toggleNote(command.row(), command.col(), command.number());
+                break;
+        }
+        requestRender();
+    }
+
+    /**
+     * Handles the event when a square on the grid is clicked: the square is selected, and the
+     * selected number is guessed in it, or noted in notes mode, or the square is cleared if no
+     * number is selected.
+     *
+     * @param row The row of the square.
+     * @param col The column of the square.
+     */
+    public void handleSquareClicked(int row, int col) {
+        gridView.select(row, col);
+        if (buttons.isValid() && buttons.isNotesMode()) {
+            dispatch(Command.note(row, col, buttons.getSelectedButton()));
+        } else if (buttons.isValid()) {
+            dispatch(Command.guess(row, col, buttons.getSelectedButton()));
+        } else {
+            dispatch(Command.clear(row, col));
+        }
+    }
+
+    /**
+     * Handles a number typed on the keyboard, guessing it in the selected square or noting it in notes mode.
+     *
+     * @param number The number (1-9), or 0 to clear the selected square.
+     */
+    public void handleNumberTyped(int number) {
+        if (!gridView.isValid()) {
+            return;
+        }
+        if (number == 0) {
+            dispatch(Command.clear(gridView.getClickedRow(), gridView.getClickedCol()));
+        } else if (buttons.isNotesMode()) {
+            dispatch(Command.note(gridView.getClickedRow(), gridView.getClickedCol(), number));
+        } else {
+            dispatch(Command.guess(gridView.getClickedRow(), gridView.getClickedCol(), number));
+        }
+    }
+
+    /**
+     * Handles the event when the user turns automatic notes on or off, for this and later games.
+     *
+     * @param autoNotes True to fill the notes with the candidates automatically, false otherwise.
      */
-    public void handleTheChosenSquare() {
-        gridView.updateView();
+    public void handleAutoNotes(boolean autoNotes) {
+        this.autoNotes = autoNotes;
+        model.setAutoNotes(autoNotes);
+        requestRender();
     }
 
     /**
-     * Handles the event when a guess is made, updating the model and grid view.
+     * Renders the grid on the application thread after the current event, unless a render is already queued.
      */
-    public void handleGuess() {
-        if(buttons.isValid()) {
-            model.guess(gridView.getClickedRow(), gridView.getClickedCol(), buttons.getSelectedButton());
-            gridView.updateView();
-            System.out.println(model.getLeftToGuess());
+    public void requestRender() {
+        if (!renderPending) {
+            renderPending = true;
+            Platform.runLater(() -> {
+                renderPending = false;
+                gridView.updateView();
+            });
         }
     }
 
@@ -67,40 +181,113 @@ public class Controller {
      */
     public void handleCheck() {
         Alert alert = menuView.alertWindow("Result so far!", "information!");
-        if (model.Check()){
+        if (!model.hasMistakes()){
             alert.setContentText("Correct so far!!");
         }else {
             alert.setContentText("Sorry! You have done some mistakes!!");
         }
         alert.show();
-        gridView.updateView();
+        gridView.setShowMistakes(true);
+        requestRender();
     }
 
     /**
-     * Handles the event when the user clears a guess in a square, updating the model and grid view.
+     * Handles the event when the user requests a hint, updating the model and grid view.
      */
-    public void handleClear() {
-        if (!buttons.isValid()) {
-            model.clear(gridView.getClickedRow(), gridView.getClickedCol());
-            gridView.updateView();
-            System.out.println(model.getLeftToGuess());
+    public void handleHint() {
+        dispatch(Command.hint());
+    }
+
+    /**
+     * Handles the event when the user requests a smart hint, the square a human solver would fill next.
+     */
+    public void handleSmartHint() {
+        dispatch(Command.smartHint());
+    }
+
+    /**
+     * Handles the event when the user asks to explain the next move: the steps a human solver
+     * takes up to the next square it can fill are shown, and that square is selected. Nothing
+     * is filled in.
+     */
+    public void handleExplainMove() {
+        Alert alert = menuView.alertWindow("Next move!", "Information!");
+        StringBuilder text = new StringBuilder();
+        HumanSolver.Step placement = null;
+        Iterator<HumanSolver.Step> steps = model.solvingSteps().iterator();
+        while (placement == null && steps.hasNext()) {
+            HumanSolver.Step step = steps.next();
+            text.append(step.explain()).append('\n');
+            if (step.isPlacement()) {
+                placement = step;
+            }
         }
+        if (placement != null) {
+            gridView.select(Board.row(placement.cell()), Board.col(placement.cell()));
+            requestRender();
+        } else if (model.isSolved()) {
+            text.append("The Sudoku is already solved!");
+        } else {
+            text.append("No square can be filled without guessing, try a hint!");
+        }
+        alert.setContentText(text.toString());
+        alert.show();
     }
 
     /**
-     * Handles the event when the user requests a hint, updating the model and grid view.
+     * Handles the event when the user asks to watch the game being solved: one square is filled
+     * per frame, in the order a human solver would fill them, with a random hint when it gets
+     * stuck. Any other move or a new game stops the animation.
      */
-    public void handleHint() {
-        model.hint();
-        gridView.updateView();
+    public void handleAnimatedSolve() {
+        stopSolve();
+        solveSteps = model.solvingSteps().iterator();
+        solveAnimation = new Timeline(new KeyFrame(SOLVE_STEP_TIME, new EventHandler<ActionEvent>() {
+            @Override
+            public void handle(ActionEvent event) {
+                solveNextSquare();
+            }
+        }));
+        solveAnimation.setCycleCount(Animation.INDEFINITE);
+        solveAnimation.play();
+    }
+
+    private void solveNextSquare() {
+        while (solveSteps.hasNext()) {
+            HumanSolver.Step step = solveSteps.next();
+            if (step.isPlacement()) {
+                int row = Board.row(step.cell());
+                int col = Board.col(step.cell());
+                gridView.select(row, col);
+                apply(Command.guess(row, col, step.digit()));
+                return;
+            }
+        }
+        if (model.isSolved()) {
+            stopSolve();
+        } else {
+            // stuck: reveal a random square and let the solver go on from there
+            apply(Command.hint());
+            solveSteps = model.solvingSteps().iterator();
+        }
+    }
+
+    private void stopSolve() {
+        if (solveAnimation != null) {
+            solveAnimation.stop();
+            solveAnimation = null;
+            solveSteps = null;
+        }
     }
 
     /**
      * Handles the event when the user starts a new game, resetting the model and updating the grid view.
      */
     public void handleNewGame() {
+        stopSolve();
+        gridView.setShowMistakes(false);
         model.NewGame();
-        gridView.updateView();
+        requestRender();
     }
 
     /**
@@ -109,52 +296,80 @@ public class Controller {
      * @param level The difficulty level of the new game.
      */
     public void handleNewGameNewLevel(SudokuUtilities.SudokuLevel level) {
+        stopSolve();
+        gridView.setShowMistakes(false);
         model.NewGameNewLevel(level);
-        gridView.updateView();
+        requestRender();
     }
 
-     /**
+    /**
      * Handles the action of saving the current state of the Sudoku game to a file.
      * Opens a FileChooser dialog for the user to specify the file where the game state will be saved.
-     * If a valid file is selected, the current Sudoku game state is saved to that file.
+     * If a valid file is selected, the game is encoded right away and written to the file in the background.
      */
     public void handleSaveGame() {
         File file = menuView.makeFileChooser("Save Game", stage);
         if(file!=null) {
-            try {
-                SudokuIO.SaveGame(file, model);
-            } catch (IOException e) {
-                Alert alert = menuView.alertWindow("Exception!", "Exception!");
-                alert.setContentText("Exception line 126 while saving game!");
-                alert.show();
-                throw new RuntimeException(e);
-            }
+            ByteBuffer save = SudokuIO.encode(model);  // the model is only used on the FX thread
+            runInBackground("Saving...", "saving", () -> {
+                SudokuIO.SaveGame(file, save);
+                return file;
+            }, saved -> { });
         }
     }
 
     /**
      * Handles the action of loading a Sudoku game from a file.
      * Opens a FileChooser dialog for the user to select a file to load the game state from.
-     * If a valid file is selected, the Sudoku game state is loaded and the view is updated.
+     * If a valid file is selected, the game is read in the background and then shown.
      */
     public void handleLoadGame() {
         File file = menuView.makeFileChooser("Load Game", stage);
-        Cells modelFromFiles = null;
-        try {
-            modelFromFiles = SudokuIO.LoadGame(file);
-        } catch (IOException | ClassNotFoundException e) {
-            Alert alert = menuView.alertWindow("Exception!", "Exception!");
-            alert.setContentText("Exception line 144 while Loading game!");
-            alert.show();
-            throw new RuntimeException(e);
-        }
-        if (modelFromFiles != null) {
-            model = modelFromFiles;
-            gridView.setModel(model);
-            gridView.updateView();
+        if (file != null) {
+            runInBackground("Loading...", "loading", () -> SudokuIO.LoadGame(file), modelFromFiles -> {
+                stopSolve();
+                gridView.setShowMistakes(false);
+                model = modelFromFiles;
+                model.setAutoNotes(autoNotes);
+                if (journal != null) {
+                    journal.attach(model);
+                }
+                gridView.setModel(model);
+                requestRender();
+            });
         }
     }
 
+    /**
+     * Runs file work on a background thread while the menu shows it as busy. The result, or an
+     * alert describing the error, is handled on the JavaFX application thread.
+     *
+     * @param status    The status shown while the work runs.
+     * @param action    What is done, for the error message.
+     * @param work      The work to run in the background.
+     * @param onSuccess What to do with the result on the application thread.
+     */
+    private <T> void runInBackground(String status, String action, Callable<T> work, Consumer<T> onSuccess) {
+        menuView.setBusy(status);
+        fileExecutor.execute(() -> {
+            try {
+                T result = work.call();
+                Platform.runLater(() -> {
+                    menuView.setIdle();
+                    onSuccess.accept(result);
+                });
+            } catch (Exception e) {
+                Platform.runLater(() -> {
+                    menuView.setIdle();
+                    Alert alert = menuView.alertWindow("Exception!", "Exception!");
+                    alert.setContentText("Error while " + action + " game: "
+                            + (e.getMessage() != null ? e.getMessage() : e.toString()));
+                    alert.show();
+                });
+            }
+        });
+    }
+
     /**
      * Handles the event when the user requests information about how to play the game.
      * Displays an alert with the game information.
@@ -170,17 +385,16 @@ public class Controller {
      * Updates the model and grid view.
      */
     public void handleClearAll() {
-        model.clearAll();
-        gridView.updateView();
+        dispatch(Command.clearAll());
     }
 
     /**
      * Checks the game result and displays a congratulatory or informative alert if the game is won or lost.
      */
     public void result() {
-        if(model.getLeftToGuess() == 0) {
+        if(model.isTheLastGuess()) {
             Alert alert = menuView.alertWindow("Result!", "Information!");
-            if(model.result()) {
+            if(model.isSolved()) {
                 alert.setContentText("congratulations!! You Won!!!!");
             }else {
                 alert.setContentText("Nice try!!!");
@@ -0,0 +1,522 @@
+package se.kth.alialaa.labb4.model;
+
+import java.util.Arrays;
+
+import static se.kth.alialaa.labb4.model.SudokuUtilities.*;
+
+/**
+ * Compact primitive representation of a Sudoku board.
+ * The 81 cells are addressed by a single index (row * 9 + col); the solution and the
+ * current values are stored as one byte per cell and the given cells as an 81-bit
+ * {@link CellSet}, so a board is a handful of arrays instead of 81 objects.
+ * <p>
+ * The board also keeps a 9-bit occupancy mask (bit d-1 for digit d) for every row, column
+ * and box, backed by per unit digit counts so that duplicates are handled correctly.
+ * They are updated on every change, which makes candidate and legality questions a few
+ * bit operations.
+ * <p>
+ * Finally it counts the filled cells and tracks the guessed cells whose value differs from the
+ * solution, so "is it solved" and "are there mistakes" never need a scan of the grid. The cells
+ * whose digit is repeated by a peer are kept in a set as well, updated from the unit counts by
+ * looking only at the changed cell and its peers.
+ * <p>
+ * The open cells, the guessed cells that are empty or wrong, are kept in an index set with
+ * swap-remove, so any of them is picked in constant time, for example by a hint.
+ */
+public final class Board {
+    public static final int CELL_COUNT = GRID_SIZE * GRID_SIZE;
+    public static final int PEER_COUNT = 20;
+    public static final int UNIT_COUNT = 27;
+    public static final int ALL_DIGITS = 0x1FF;
+
+    private static final byte[] BOX_OF = new byte[CELL_COUNT];
+    private static final byte[][] PEERS = new byte[CELL_COUNT][PEER_COUNT];
+    private static final byte[][] UNITS = new byte[UNIT_COUNT][GRID_SIZE];
+
+    static {
+        for (int index = 0; index < CELL_COUNT; index++) {
+            BOX_OF[index] = (byte) (row(index) / SECTION_SIZE * SECTIONS_PER_ROW + col(index) / SECTION_SIZE);
+        }
+        int[] unitSize = new int[UNIT_COUNT];
+        for (int index = 0; index < CELL_COUNT; index++) {
+            int row = row(index), col = GRID_SIZE + col(index), box = 2 * GRID_SIZE + BOX_OF[index];
+            UNITS[row][unitSize[row]++] = (byte) index;
+            UNITS[col][unitSize[col]++] = (byte) index;
+            UNITS[box][unitSize[box]++] = (byte) index;
+        }
+        for (int index = 0; index < CELL_COUNT; index++) {
+            int n = 0;
+            for (int other = 0; other < CELL_COUNT; other++) {
+                if (other != index && (row(other) == row(index) || col(other) == col(index)
+                        || BOX_OF[other] == BOX_OF[index])) {
+                    PEERS[index][n++] = (byte) other;
+                }
+            }
+        }
+    }
+
+    private final byte[] solution;  // the solution digit of every cell
+    private final byte[] values;    // the given or guessed digit of every cell, zero when empty
+    private final CellSet given;    // the initial values of the puzzle
+    private final CellSet wrong;    // the guessed cells whose value is not the solution
+    private final CellSet conflicts;        // the filled cells whose digit a peer also holds
+    private final CellSet conflictChanges;  // the cells that started or stopped conflicting by the last change
+    private int filled;             // the number of cells with a value
+    private final byte[] openCells;     // the open cells, in the first openCount places
+    private final byte[] openPosition;  // [index] the place of an open cell in openCells, -1 if not open
+    private int openCount;              // the number of open cells
+    private final int[] rowMask;    // digits present in every row
+    private final int[] colMask;    // digits present in every column
+    private final int[] boxMask;    // digits present in every box
+    private final byte[] rowCount;  // [row * 10 + digit] how many times a digit is in a row
+    private final byte[] colCount;  // [col * 10 + digit] how many times a digit is in a column
+    private final byte[] boxCount;  // [box * 10 + digit] how many times a digit is in a box
+
+    /**
+     * Constructs an empty board.
+     */
+    public Board() {
+        this.solution = new byte[CELL_COUNT];
+        this.values = new byte[CELL_COUNT];
+        this.given = new CellSet();
+        this.wrong = new CellSet();
+        this.conflicts = new CellSet();
+        this.conflictChanges = new CellSet();
+        this.openCells = new byte[CELL_COUNT];
+        this.openPosition = new byte[CELL_COUNT];
+        this.rowMask = new int[GRID_SIZE];
+        this.colMask = new int[GRID_SIZE];
+        this.boxMask = new int[GRID_SIZE];
+        this.rowCount = new byte[GRID_SIZE * 10];
+        this.colCount = new byte[GRID_SIZE * 10];
+        this.boxCount = new byte[GRID_SIZE * 10];
+    }
+
+    /**
+     * Gets the index of a cell.
+     *
+     * @param row The row number of the cell.
+     * @param col The column number of the cell.
+     * @return The index of the cell (0-80).
+     */
+    public static int index(int row, int col) {
+        return row * GRID_SIZE + col;
+    }
+
+    /**
+     * Gets the row number of a cell index.
+     *
+     * @param index The index of the cell.
+     * @return The row number of the cell.
+     */
+    public static int row(int index) {
+        return index / GRID_SIZE;
+    }
+
+    /**
+     * Gets the column number of a cell index.
+     *
+     * @param index The index of the cell.
+     * @return The column number of the cell.
+     */
+    public static int col(int index) {
+        return index % GRID_SIZE;
+    }
+
+    /**
+     * Gets the box number of a cell index.
+     *
+     * @param index The index of the cell.
+     * @return The box number of the cell, counted row by row (0-8).
+     */
+    public static int box(int index) {
+        return BOX_OF[index];
+    }
+
+    /**
+     * Gets one of the 20 peers of a cell, the cells sharing its row, column or box.
+     *
+     * @param index The index of the cell.
+     * @param n     Which peer to get (0-19).
+     * @return The index of the peer.
+     */
+    public static int peer(int index, int n) {
+        return PEERS[index][n];
+    }
+
+    /**
+     * Gets one of the 9 cells of a unit.
+     *
+     * @param unit The unit: rows 0-8, columns 9-17 and boxes 18-26.
+     * @param n    Which cell to get (0-8), in row order.
+     * @return The index of the cell.
+     */
+    public static int unitCell(int unit, int n) {
+        return UNITS[unit][n];
+    }
+
+    /**
+     * Checks if two different cells share a row, column or box.
+     *
+     * @param first  The index of the first cell.
+     * @param second The index of the second cell.
+     * @return True if the cells are peers, false otherwise or if they are the same cell.
+     */
+    public static boolean isPeer(int first, int second) {
+        return first != second && (row(first) == row(second) || col(first) == col(second)
+                || BOX_OF[first] == BOX_OF[second]);
+    }
+
+    /**
+     * Gets the mask bit of a digit.
+     *
+     * @param digit The digit (1-9).
+     * @return The bit representing the digit in the occupancy and candidate masks.
+     */
+    public static int bit(int digit) {
+        return 1 << (digit - 1);
+    }
+
+    /**
+     * Loads a puzzle into the board, replacing its whole content.
+     *
+     * @param sudokuMatrix The matrix from SudokuUtilities, [row][col][0] the initial values and [row][col][1] the solution.
+     */
+    public void load(int[][][] sudokuMatrix) {
+        given.clear();
+        for (int row = 0; row < GRID_SIZE; row++) {
+            for (int col = 0; col < GRID_SIZE; col++) {
+                int index = index(row, col);
+                solution[index] = (byte) sudokuMatrix[row][col][1];
+                values[index] = (byte) sudokuMatrix[row][col][0];
+                if (values[index] != 0) {
+                    given.add(index);
+                }
+            }
+        }
+        recount();
+    }
+
+    /**
+     * Gets the current value of a cell.
+     *
+     * @param index The index of the cell.
+     * @return The given or guessed digit, or zero if the cell is empty.
+     */
+    public int value(int index) {
+        return values[index];
+    }
+
+    /**
+     * Gets the solution of a cell.
+     *
+     * @param index The index of the cell.
+     * @return The solution digit of the cell.
+     */
+    public int solution(int index) {
+        return solution[index];
+    }
+
+    /**
+     * Checks if a cell is one of the initial values of the puzzle.
+     *
+     * @param index The index of the cell.
+     * @return True if the cell is given, false otherwise.
+     */
+    public boolean isGiven(int index) {
+        return given.contains(index);
+    }
+
+    /**
+     * Gets the number of cells that have a value.
+     *
+     * @return The number of given or guessed cells.
+     */
+    public int filledCount() {
+        return filled;
+    }
+
+    /**
+     * Gets the number of guessed cells whose value is not the solution.
+     *
+     * @return The number of wrong cells.
+     */
+    public int wrongCount() {
+        return wrong.size();
+    }
+
+    /**
+     * Checks if a guessed cell has a value that is not its solution.
+     *
+     * @param index The index of the cell.
+     * @return True if the cell is guessed and wrong, false otherwise.
+     */
+    public boolean isWrong(int index) {
+        return wrong.contains(index);
+    }
+
+    /**
+     * Gets the guessed cells whose value is not the solution.
+     *
+     * @return A copy of the set of wrong cells.
+     */
+    public CellSet wrongCells() {
+        return new CellSet(wrong);
+    }
+
+    /**
+     * Checks if the digit of a cell is repeated in the cell's row, column or box.
+     *
+     * @param index The index of the cell.
+     * @return True if the cell is filled and a peer holds the same digit, false otherwise.
+     */
+    public boolean isConflict(int index) {
+        return conflicts.contains(index);
+    }
+
+    /**
+     * Gets the filled cells whose digit is repeated in their row, column or box.
+     *
+     * @return The set of conflicting cells itself, to be read and not changed.
+     */
+    public CellSet conflictCells() {
+        return conflicts;
+    }
+
+    /**
+     * Gets the cells that started or stopped conflicting by the last call to setValue.
+     *
+     * @return The set of cells itself, to be read and not changed. Valid until the next change.
+     */
+    public CellSet conflictChanges() {
+        return conflictChanges;
+    }
+
+    /**
+     * Gets the number of open cells, the cells that are not given and are empty or wrong.
+     *
+     * @return The number of open cells.
+     */
+    public int openCount() {
+        return openCount;
+    }
+
+    /**
+     * Gets an open cell by its place in the open set. The order changes when cells open or close.
+     *
+     * @param n The place in the open set, between 0 and openCount() - 1.
+     * @return The index of the cell.
+     * @throws IndexOutOfBoundsException If n is not a place in the open set.
+     */
+    public int openCell(int n) {
+        if (n < 0 || n >= openCount) {
+            throw new IndexOutOfBoundsException("open cell " + n + " of " + openCount);
+        }
+        return openCells[n];
+    }
+
+    /**
+     * Checks if every cell is filled and no guess is wrong.
+     *
+     * @return True if the board is solved, false otherwise.
+     */
+    public boolean isSolved() {
+        return filled == CELL_COUNT && wrong.isEmpty();
+    }
+
+    /**
+     * Sets the value of a cell. Given cells are not protected here, that is up to the caller.
+     *
+     * @param index The index of the cell.
+     * @param value The new digit, or zero to empty the cell.
+     */
+    public void setValue(int index, int value) {
+        int old = values[index];
+        if (old == value) {
+            return;
+        }
+        if (old != 0) {
+            remove(index, old);
+            filled--;
+        }
+        values[index] = (byte) value;
+        if (value != 0) {
+            add(index, value);
+            filled++;
+        }
+        updateWrong(index);
+        updateOpen(index);
+
+        // only the cell and the peers holding the old or the new digit can change conflict state
+        conflictChanges.clear();
+        updateConflict(index);
+        for (int n = 0; n < PEER_COUNT; n++) {
+            int peer = PEERS[index][n];
+            if (values[peer] != 0 && (values[peer] == old || values[peer] == value)) {
+                updateConflict(peer);
+            }
+        }
+    }
+
+    /**
+     * Gets the digits not yet used by any other cell in the row, column and box of a cell.
+     *
+     * @param index The index of the cell.
+     * @return A 9-bit mask with bit d-1 set when digit d can be placed in the cell.
+     */
+    public int candidates(int index) {
+        int used = rowMask[row(index)] | colMask[col(index)] | boxMask[BOX_OF[index]];
+        int value = values[index];
+        if (value != 0 && isLegal(index, value)) {
+            used &= ~bit(value);  // the cell is the only holder of its own value
+        }
+        return ALL_DIGITS & ~used;
+    }
+
+    /**
+     * Checks if a digit can be placed in a cell without repeating it in the cell's row, column or box.
+     * The cell's own value does not count.
+     *
+     * @param index The index of the cell.
+     * @param digit The digit (1-9).
+     * @return True if no peer of the cell holds the digit, false otherwise.
+     */
+    public boolean isLegal(int index, int digit) {
+        int own = values[index] == digit ? 1 : 0;
+        return rowCount[row(index) * 10 + digit] == own
+                && colCount[col(index) * 10 + digit] == own
+                && boxCount[BOX_OF[index] * 10 + digit] == own;
+    }
+
+    /**
+     * Gets the digits present in a row.
+     *
+     * @param row The row number.
+     * @return A 9-bit occupancy mask.
+     */
+    public int rowMask(int row) {
+        return rowMask[row];
+    }
+
+    /**
+     * Gets the digits present in a column.
+     *
+     * @param col The column number.
+     * @return A 9-bit occupancy mask.
+     */
+    public int colMask(int col) {
+        return colMask[col];
+    }
+
+    /**
+     * Gets the digits present in a box.
+     *
+     * @param box The box number.
+     * @return A 9-bit occupancy mask.
+     */
+    public int boxMask(int box) {
+        return boxMask[box];
+    }
+
+    private void add(int index, int digit) {
+        int bit = bit(digit);
+        int row = row(index), col = col(index), box = BOX_OF[index];
+        rowCount[row * 10 + digit]++;
+        colCount[col * 10 + digit]++;
+        boxCount[box * 10 + digit]++;
+        rowMask[row] |= bit;
+        colMask[col] |= bit;
+        boxMask[box] |= bit;
+    }
+
+    private void remove(int index, int digit) {
+        int bit = bit(digit);
+        int row = row(index), col = col(index), box = BOX_OF[index];
+        if (--rowCount[row * 10 + digit] == 0) {
+            rowMask[row] &= ~bit;
+        }
+        if (--colCount[col * 10 + digit] == 0) {
+            colMask[col] &= ~bit;
+        }
+        if (--boxCount[box * 10 + digit] == 0) {
+            boxMask[box] &= ~bit;
+        }
+    }
+
+    /**
+     * Rebuilds the occupancy masks, counts and the wrong cells from the values.
+     */
+    private void recount() {
+        Arrays.fill(rowMask, 0);
+        Arrays.fill(colMask, 0);
+        Arrays.fill(boxMask, 0);
+        Arrays.fill(rowCount, (byte) 0);
+        Arrays.fill(colCount, (byte) 0);
+        Arrays.fill(boxCount, (byte) 0);
+        wrong.clear();
+        conflicts.clear();
+        conflictChanges.clear();
+        Arrays.fill(openPosition, (byte) -1);
+        openCount = 0;
+        filled = 0;
+        for (int index = 0; index < CELL_COUNT; index++) {
+            if (values[index] != 0) {
+                add(index, values[index]);
+                filled++;
+                updateWrong(index);
+            }
+            updateOpen(index);
+        }
+        for (int index = 0; index < CELL_COUNT; index++) {
+            conflicts.set(index, values[index] != 0 && !isLegal(index, values[index]));
+        }
+    }
+
+    /**
+     * Applies a symmetry transform to the whole board in one pass: the solution, the values and
+     * the given cells are moved and relabeled together.
+     *
+     * @param transform The transform to apply.
+     */
+    public void transform(SudokuTransform transform) {
+        byte[] oldSolution = solution.clone();
+        byte[] oldValues = values.clone();
+        CellSet oldGiven = new CellSet(given);
+        given.clear();
+        for (int index = 0; index < CELL_COUNT; index++) {
+            int source = transform.sourceIndex(index);
+            solution[index] = (byte) transform.mapDigit(oldSolution[source]);
+            values[index] = (byte) transform.mapDigit(oldValues[source]);
+            if (oldGiven.contains(source)) {
+                given.add(index);
+            }
+        }
+        recount();
+    }
+
+    private void updateConflict(int index) {
+        boolean conflict = values[index] != 0 && !isLegal(index, values[index]);
+        if (conflict != conflicts.contains(index)) {
+            conflicts.set(index, conflict);
+            conflictChanges.add(index);
+        }
+    }
+
+    private void updateOpen(int index) {
+        boolean open = !given.contains(index) && values[index] != solution[index];
+        int position = openPosition[index];
+        if (open && position < 0) {
+            openCells[openCount] = (byte) index;
+            openPosition[index] = (byte) openCount++;
+        } else if (!open && position >= 0) {
+            int last = openCells[--openCount];  // move the last open cell into the hole
+            openCells[position] = (byte) last;
+            openPosition[last] = (byte) position;
+            openPosition[index] = -1;
+        }
+    }
+
+    private void updateWrong(int index) {
+        wrong.set(index, values[index] != 0 && values[index] != solution[index] && !given.contains(index));
+    }
+}
@@ -0,0 +1,20 @@
+package se.kth.alialaa.labb4.model;
+
+/**
+ * Receives the cells of a game that changed, so a view can repaint only those.
+ * The methods are called on the thread that changes the game, right after each change.
+ */
+public interface CellListener {
+    int VALUE = 1;      // the number shown in the cell changed
+    int STATE = 2;      // the state of the cell changed, see Cells.stateAt
+    int CONFLICT = 4;   // the cell started or stopped repeating a number of its row, column or box
+    int NOTES = 8;      // the pencil marks of the cell changed
+
+    /**
+     * Called once for every cell that changed.
+     *
+     * @param index   The index of the cell, see {@link Board#index(int, int)}.
+     * @param changes What changed, any of VALUE, STATE, CONFLICT and NOTES.
+     */
+    void cellChanged(int index, int changes);
+}
@@ -0,0 +1,148 @@
+package se.kth.alialaa.labb4.model;
+
+/**
+ * A set of cell indexes (0-80) packed as an 81-bit mask in two longs.
+ * Adding, removing and testing a cell are single bit operations and the set never allocates.
+ */
+public final class CellSet {
+    private long low;   // cells 0-63
+    private long high;  // cells 64-80
+
+    /**
+     * Constructs an empty set.
+     */
+    public CellSet() {
+    }
+
+    /**
+     * Constructs a copy of another set.
+     *
+     * @param other The set to copy.
+     */
+    public CellSet(CellSet other) {
+        this.low = other.low;
+        this.high = other.high;
+    }
+
+    /**
+     * Adds a cell to the set.
+     *
+     * @param index The index of the cell.
+     */
+    public void add(int index) {
+        if (index < 64) {
+            low |= 1L << index;
+        } else {
+            high |= 1L << (index - 64);
+        }
+    }
+
+    /**
+     * Removes a cell from the set.
+     *
+     * @param index The index of the cell.
+     */
+    public void remove(int index) {
+        if (index < 64) {
+            low &= ~(1L << index);
+        } else {
+            high &= ~(1L << (index - 64));
+        }
+    }
+
+    /**
+     * Adds or removes a cell.
+     *
+     * @param index   The index of the cell.
+     * @param present True to add the cell, false to remove it.
+     */
+    public void set(int index, boolean present) {
+        if (present) {
+            add(index);
+        } else {
+            remove(index);
+        }
+    }
+
+    /**
+     * Checks if a cell is in the set.
+     *
+     * @param index The index of the cell.
+     * @return True if the cell is in the set, false otherwise.
+     */
+    public boolean contains(int index) {
+        return index < 64 ? (low >>> index & 1L) != 0 : (high >>> (index - 64) & 1L) != 0;
+    }
+
+    /**
+     * Gets the number of cells in the set.
+     *
+     * @return The number of cells.
+     */
+    public int size() {
+        return Long.bitCount(low) + Long.bitCount(high);
+    }
+
+    /**
+     * Checks if the set is empty.
+     *
+     * @return True if the set has no cells, false otherwise.
+     */
+    public boolean isEmpty() {
+        return (low | high) == 0;
+    }
+
+    /**
+     * Removes all cells from the set.
+     */
+    public void clear() {
+        low = 0;
+        high = 0;
+    }
+
+    /**
+     * Gets the first cell in the set at or after a given index, for iterating without allocating:
+     * {@code for (int i = set.next(0); i >= 0; i = set.next(i + 1))}.
+     *
+     * @param from The index to start from.
+     * @return The index of the next cell in the set, or -1 if there is none.
+     */
+    public int next(int from) {
+        if (from < 64) {
+            long bits = low & (-1L << from);
+            if (bits != 0) {
+                return Long.numberOfTrailingZeros(bits);
+            }
+            from = 64;
+        }
+        if (from >= Board.CELL_COUNT) {
+            return -1;
+        }
+        long bits = high & (-1L << (from - 64));
+        return bits != 0 ? 64 + Long.numberOfTrailingZeros(bits) : -1;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof CellSet set && set.low == low && set.high == high;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(low) * 31 + Long.hashCode(high);
+    }
+
+    /**
+     * Returns a string representation of the set.
+     *
+     * @return The indexes of the cells in the set.
+     */
+    @Override
+    public String toString() {
+        StringBuilder info = new StringBuilder("[");
+        for (int index = next(0); index >= 0; index = next(index + 1)) {
+            info.append(info.length() > 1 ? ", " : "").append(index);
+        }
+        return info.append("]").toString();
+    }
+}
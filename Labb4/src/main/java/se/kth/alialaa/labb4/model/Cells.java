@@ -1,18 +1,28 @@
 package se.kth.alialaa.labb4.model;
 
-import java.io.Serializable;
+import se.kth.alialaa.labb4.model.solver.HumanSolver;
+
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
+import java.util.stream.Stream;
 
 /**
  * Represents the game board of a Sudoku puzzle.
- * Implements Serializable to support serialization.
+ * Saved and loaded in a compact binary format by {@link SudokuIO}.
  */
 import static se.kth.alialaa.labb4.model.SudokuUtilities.GRID_SIZE;
 
-public class Cells implements Serializable {
-    private Cell[][] cells;                                          // The 2D array representing the Sudoku grid
-    private int leftToGuess;                                         // The count of cells left to guess
+public class Cells {
+    private static final Random RANDOM = new Random();
+
+    private Board board;                                             // The packed Sudoku grid
     private SudokuUtilities.SudokuLevel level;                       // The difficulty level of the Sudoku puzzle
+    private MoveListener moveListener;                               // Told about every change, may be null
+    private final List<CellListener> cellListeners = new ArrayList<>(); // Told which cells changed
+    private final Notes notes = new Notes();                         // The pencil marks, not saved
+    private final CellSet noteChanges = new CellSet();               // The cells whose notes the last change touched
+    private boolean autoNotes;                                       // Notes are kept filled with the candidates
 
     /**
      * Constructs a new Cells object with the specified Sudoku level.
@@ -20,34 +30,204 @@ public class Cells implements Serializable {
      * @param level The difficulty level of the Sudoku puzzle.
      */
     public Cells(SudokuUtilities.SudokuLevel level) {
-        this.cells = new Cell[GRID_SIZE][GRID_SIZE];
-        this.leftToGuess = 81;
+        this.board = new Board();
         this.level = level;
         fillCells(this.level);
     }
 
+    /**
+     * Constructs a Cells object around a board that already holds a game, used when loading a game.
+     *
+     * @param level The difficulty level of the Sudoku puzzle.
+     * @param board The board with the puzzle, its solution and the guesses.
+     */
+    /*package private*/
+    Cells(SudokuUtilities.SudokuLevel level, Board board) {
+        this.board = board;
+        this.level = level;
+    }
+
+    /**
+     * Gets the difficulty level of the game.
+     *
+     * @return The difficulty level used by new games.
+     */
+    public SudokuUtilities.SudokuLevel getLevel() {
+        return level;
+    }
+
+    /**
+     * Sets the listener told about every change the player makes.
+     *
+     * @param moveListener The listener, or null for none.
+     */
+    public void setMoveListener(MoveListener moveListener) {
+        this.moveListener = moveListener;
+    }
+
+    /**
+     * Adds a listener told about every cell that changes.
+     *
+     * @param listener The listener to add.
+     */
+    public void addCellListener(CellListener listener) {
+        cellListeners.add(listener);
+    }
+
+    /**
+     * Removes a listener added by {@link #addCellListener(CellListener)}.
+     *
+     * @param listener The listener to remove.
+     */
+    public void removeCellListener(CellListener listener) {
+        cellListeners.remove(listener);
+    }
+
+    /**
+     * Gets the board holding the game, for saving it.
+     *
+     * @return The board itself, not a copy.
+     */
+    /*package private*/
+    Board getBoard() {
+        return board;
+    }
+
     /**
      * Gets the count of cells left to guess.
      *
      * @return The count of cells left to guess.
      */
     public int getLeftToGuess() {
-        return leftToGuess;
+        return Board.CELL_COUNT - board.filledCount();
     }
 
     /**
-     * Gets a copy of the 2D array representing the Sudoku grid.
+     * Gets the value shown in a cell, without copying the grid.
      *
-     * @return A copy of the Sudoku grid.
+     * @param rowNr The row number of the cell.
+     * @param colNr The column number of the cell.
+     * @return The given or guessed number, or zero if the cell is empty.
      */
-    public Cell[][] getCells() {
-        Cell[][] copy = new Cell[GRID_SIZE][GRID_SIZE];
-        for (int row=0; row<GRID_SIZE; row++) {
-            for (int col=0; col<GRID_SIZE; col++) {
-                copy[row][col] = new Cell(cells[row][col].getToGuess(),cells[row][col].getCellState(),cells[row][col].getTheGuess());
-            }
+    public int valueAt(int rowNr, int colNr) {
+        return board.value(Board.index(rowNr, colNr));
+    }
+
+    /**
+     * Gets the state of a cell, without copying the grid.
+     *
+     * @param rowNr The row number of the cell.
+     * @param colNr The column number of the cell.
+     * @return KNOWN for the initial values, RIGHT for a correct guess, TO_GUESS otherwise.
+     */
+    public CellState stateAt(int rowNr, int colNr) {
+        int index = Board.index(rowNr, colNr);
+        if (board.isGiven(index)) {
+            return CellState.KNOWN;
         }
-        return copy;
+        return board.value(index) == board.solution(index) ? CellState.RIGHT : CellState.TO_GUESS;
+    }
+
+    /**
+     * Checks if a cell is one of the initial values of the puzzle.
+     *
+     * @param rowNr The row number of the cell.
+     * @param colNr The column number of the cell.
+     * @return True if the cell is known from the start, false otherwise.
+     */
+    public boolean isKnown(int rowNr, int colNr) {
+        return board.isGiven(Board.index(rowNr, colNr));
+    }
+
+    /**
+     * Gets the numbers that can be placed in a cell without repeating a number in its row, column or box.
+     *
+     * @param rowNr The row number of the cell.
+     * @param colNr The column number of the cell.
+     * @return A 9-bit mask where bit n-1 is set when the number n is possible.
+     */
+    public int candidates(int rowNr, int colNr) {
+        return board.candidates(Board.index(rowNr, colNr));
+    }
+
+    /**
+     * Checks if a number can be placed in a cell without repeating it in the cell's row, column or box.
+     *
+     * @param rowNr The row number of the cell.
+     * @param colNr The column number of the cell.
+     * @param number The number to check (1-9).
+     * @return True if no other cell in the row, column or box holds the number, false otherwise.
+     */
+    public boolean isLegal(int rowNr, int colNr, int number) {
+        return board.isLegal(Board.index(rowNr, colNr), number);
+    }
+
+    /**
+     * Gets the pencil marks of a cell.
+     *
+     * @param rowNr The row number of the cell.
+     * @param colNr The column number of the cell.
+     * @return A 9-bit mask where bit n-1 is set when the number n is noted.
+     */
+    public int notesAt(int rowNr, int colNr) {
+        return notes.get(Board.index(rowNr, colNr));
+    }
+
+    /**
+     * Adds a number to the pencil marks of an empty cell, or removes it if it is already noted.
+     *
+     * @param rowNr  The row number of the cell.
+     * @param colNr  The column number of the cell.
+     * @param number The number (1-9).
+     * @throws IllegalArgumentException If the number is not between 1 and 9.
+     */
+    public void toggleNote(int rowNr, int colNr, int number) {
+        if (number <= 0 || number > 9) {
+            throw new IllegalArgumentException("Illegal input!");
+        }
+        int index = Board.index(rowNr, colNr);
+        if (board.value(index) == 0 && notes.set(index, notes.get(index) ^ Board.bit(number))) {
+            cellChanged(index, CellListener.NOTES);
+        }
+    }
+
+    /**
+     * Turns automatic notes on or off. When on, the notes of every empty cell are filled with its
+     * candidates now, and a cleared cell gets its candidates back. Placing a number removes it
+     * from the notes of the peers in both modes.
+     *
+     * @param autoNotes True to fill the notes automatically, false to leave them to the player.
+     */
+    public void setAutoNotes(boolean autoNotes) {
+        this.autoNotes = autoNotes;
+        if (autoNotes) {
+            fillNotes();
+        }
+    }
+
+    /**
+     * Checks if notes are filled automatically.
+     *
+     * @return True if automatic notes are on, false otherwise.
+     */
+    public boolean isAutoNotes() {
+        return autoNotes;
+    }
+
+    /**
+     * Fills the notes of every empty cell with its candidates.
+     */
+    public void fillNotes() {
+        notes.fill(board, noteChanges);
+        notesChanged();
+    }
+
+    /**
+     * Removes every note.
+     */
+    public void clearNotes() {
+        notes.clear(noteChanges);
+        notesChanged();
     }
 
     /**
@@ -62,15 +242,12 @@ public class Cells implements Serializable {
         if(guess<=0 || guess>9) {
             throw new IllegalArgumentException("Illegal input!");
         }
-        if (cells[rowNr][colNr].getCellState().equals(CellState.KNOWN)){
+        int index = Board.index(rowNr, colNr);
+        if (board.isGiven(index)){
             return;
         }
-        if(cells[rowNr][colNr].getTheGuess() != 0) {
-            cells[rowNr][colNr].setTheGuess(guess);
-        } else {
-            cells[rowNr][colNr].setTheGuess(guess);
-            leftToGuess--;
-        }
+        setValue(index, guess);
+        moveMade(index);
     }
 
     /**
@@ -79,16 +256,57 @@ public class Cells implements Serializable {
      * @return True if all guesses are correct, false otherwise.
      */
     public boolean Check() {
-        for (int row=0; row<GRID_SIZE; row++) {
-            for (int col=0; col<GRID_SIZE; col++) {
-                if (!cells[row][col].getCellState().equals(CellState.KNOWN) && cells[row][col].getTheGuess() != 0) {
-                    if (!cells[row][col].isTheGuessCorrect()) {
-                        return false;
-                    }
-                }
-            }
-        }
-        return true;
+        return !hasMistakes();
+    }
+
+    /**
+     * Checks if any filled cell holds a wrong number. Runs in constant time and changes nothing.
+     *
+     * @return True if at least one guess is wrong, false otherwise.
+     */
+    public boolean hasMistakes() {
+        return board.wrongCount() != 0;
+    }
+
+    /**
+     * Checks if a cell holds a wrong number. Runs in constant time.
+     *
+     * @param rowNr The row number of the cell.
+     * @param colNr The column number of the cell.
+     * @return True if the cell is guessed and the guess is not the solution, false otherwise.
+     */
+    public boolean isWrong(int rowNr, int colNr) {
+        return board.isWrong(Board.index(rowNr, colNr));
+    }
+
+    /**
+     * Checks if the number in a cell is repeated in the cell's row, column or box. Runs in constant time.
+     *
+     * @param rowNr The row number of the cell.
+     * @param colNr The column number of the cell.
+     * @return True if the cell holds a number that a peer also holds, false otherwise.
+     */
+    public boolean isConflict(int rowNr, int colNr) {
+        return board.isConflict(Board.index(rowNr, colNr));
+    }
+
+    /**
+     * Gets the cells whose number is repeated in their row, column or box. The set is kept up to
+     * date by every move, looking only at the changed cell and its peers.
+     *
+     * @return A copy of the set of conflicting cells, see {@link Board#index(int, int)}.
+     */
+    public CellSet conflictCells() {
+        return new CellSet(board.conflictCells());
+    }
+
+    /**
+     * Gets the cells holding a wrong number.
+     *
+     * @return A set of cell indexes, see {@link Board#index(int, int)}.
+     */
+    public CellSet wrongCells() {
+        return board.wrongCells();
     }
 
     /**
@@ -98,26 +316,24 @@ public class Cells implements Serializable {
      * @param colNr The column number of the cell.
      */
     public void clear(int rowNr, int colNr) {
-        if(cells[rowNr][colNr].getCellState().equals(CellState.KNOWN)) {
+        int index = Board.index(rowNr, colNr);
+        if(board.isGiven(index)) {
             return;
-        }else if(cells[rowNr][colNr].getTheGuess() != 0) {
-            cells[rowNr][colNr].setTheGuess(0);
-            leftToGuess++;
         }
+        setValue(index, 0);
+        moveMade(index);
     }
 
     /**
      * Clears the user's guess for all cells that are not known.
      */
     public void clearAll() {
-        for (int row=0; row<GRID_SIZE; row++) {
-            for(int col=0; col<GRID_SIZE; col++) {
-                if(!cells[row][col].getCellState().equals(CellState.KNOWN)) {
-                    cells[row][col].setTheGuess(0);
-                    this.leftToGuess++;
-                }
+        for (int index=0; index<Board.CELL_COUNT; index++) {
+            if(!board.isGiven(index)) {
+                setValue(index, 0);
             }
         }
+        gameReset();
     }
 
     /**
@@ -126,58 +342,102 @@ public class Cells implements Serializable {
      * @return True if there are no cells left to guess, false otherwise.
      */
     public boolean isTheLastGuess() {
-        return leftToGuess == 0;
+        return board.filledCount() == Board.CELL_COUNT;
     }
 
     /**
-     * Checks if the user has correctly guessed all cells and prints the result.
+     * Checks if the user has correctly guessed all cells.
      *
      * @return True if all guesses are correct, false otherwise.
      */
     public boolean result() {
-        for (int row=0; row<GRID_SIZE; row++) {
-            for (int col=0; col<GRID_SIZE; col++) {
-                if(!cells[row][col].isTheGuessCorrect()) {
-                    return false;
-                }
-            }
+        return isSolved();
+    }
+
+    /**
+     * Checks if every cell holds the right number. Runs in constant time and changes nothing.
+     *
+     * @return True if the puzzle is solved, false otherwise.
+     */
+    public boolean isSolved() {
+        return board.isSolved();
+    }
+
+    /**
+     * Provides a hint to the user by filling in a random empty cell, or correcting a random wrong
+     * guess, with the correct number. Runs in constant time.
+     *
+     * @return The index of the cell revealed, or -1 if every cell is already right.
+     */
+    public int hint() {
+        if (board.openCount() == 0) {
+            return -1;
         }
-        return true;
+        int index = board.openCell(RANDOM.nextInt(board.openCount()));
+        reveal(index);
+        return index;
     }
 
     /**
-     * Provides a hint to the user by filling in a random empty cell with the correct number.
+     * Provides a hint to the user by filling in the cell a human solver would deduce next, from
+     * the given cells and the right guesses, with the correct number. Falls back to a random
+     * hint when the solver cannot go further without guessing.
+     *
+     * @return The step that was revealed, or null if every cell was already right or a random hint was given.
      */
-    public void hint() {
-        if (!isTheLastGuess()) {
-            Random random = new Random();
-            int rowRand;
-            int colRand;
-            do {
-                rowRand = random.nextInt(9);
-                colRand = random.nextInt(9);
-            } while (cells[rowRand][colRand].getTheGuess() != 0);
-            cells[rowRand][colRand].setTheGuess(cells[rowRand][colRand].getToGuess());
-            this.leftToGuess--;
+    public HumanSolver.Step smartHint() {
+        if (board.openCount() == 0) {
+            return null;
+        }
+        // eliminations only prepare the next placement
+        HumanSolver.Step step = solvingSteps().filter(HumanSolver.Step::isPlacement).findFirst().orElse(null);
+        if (step == null) {
+            hint();
+            return null;
         }
+        reveal(step.cell());
+        return step;
+    }
+
+    /**
+     * Gets the steps a human solver would take from the given cells and the right guesses, as a
+     * lazy stream: only the steps pulled are searched for. The board is not changed, a consumer
+     * can reveal a placement with {@link #guess(int, int, int)}.
+     *
+     * @return A sequential, ordered stream of the steps, empty if every cell is already right.
+     */
+    public Stream<HumanSolver.Step> solvingSteps() {
+        int[] grid = new int[Board.CELL_COUNT];
+        for (int index = 0; index < Board.CELL_COUNT; index++) {
+            grid[index] = board.isWrong(index) ? 0 : board.value(index);
+        }
+        return HumanSolver.steps(grid);
+    }
+
+    private void reveal(int index) {
+        setValue(index, board.solution(index));
+        moveMade(index);
     }
 
     /**
      * Resets the game by filling in a new Sudoku puzzle with the current difficulty level.
      */
     public void NewGame() {
-        this.leftToGuess = 81;
-        fillCells(this.level);
+        replaceCells(this.level);
+        resetNotes();
+        gameReset();
     }
 
     /**
-     * Starts a new game with a specified difficulty level.
+     * Starts a new game with a specified difficulty level, which is also used by later new games.
      *
      * @param level The difficulty level for the new game.
      */
     public void NewGameNewLevel(SudokuUtilities.SudokuLevel level) {
-        this.leftToGuess = 81;
-        fillCells(level);
+        this.level = level;
+        replaceCells(level);
+        resetNotes();
+        gameReset();
     }
 
     /**
@@ -194,54 +454,113 @@ public class Cells implements Serializable {
     }
 
     /**
-     * Fills the Sudoku grid with numbers based on the difficulty level.
-     *
-     * @param Level The difficulty level of the Sudoku puzzle.
+     * Sets the value of a cell and tells the cell listeners what changed.
      */
-    private void fillCells(SudokuUtilities.SudokuLevel Level) {
-        int[][][] sudokuMatrix = SudokuUtilities.generateSudokuMatrix(Level);
-        for (int row=0; row<GRID_SIZE; row++) {
-            for (int col=0; col<GRID_SIZE; col++) {
-                if (sudokuMatrix[row][col][0] != 0) {
-                    cells[row][col] = new Cell(sudokuMatrix [row][col][1], CellState.KNOWN, sudokuMatrix[row][col][0]);
-                    this.leftToGuess--;
-                }
-                else {
-                    cells[row][col] = new Cell(sudokuMatrix[row][col][1], CellState.TO_GUESS, sudokuMatrix[row][col][0]);
-                }
+    private void setValue(int index, int value) {
+        int old = board.value(index);
+        if (old == value) {
+            return;
+        }
+        boolean wasRight = old == board.solution(index);
+        board.setValue(index, value);
+        boolean isRight = value == board.solution(index);
+        CellSet conflictChanges = board.conflictChanges();
+        int changes = CellListener.VALUE | (isRight != wasRight ? CellListener.STATE : 0)
+                | (conflictChanges.contains(index) ? CellListener.CONFLICT : 0);
+        cellChanged(index, changes);
+        for (int peer = conflictChanges.next(0); peer >= 0; peer = conflictChanges.next(peer + 1)) {
+            if (peer != index) {
+                cellChanged(peer, CellListener.CONFLICT);
             }
         }
-        blendCells();
+
+        if (old != 0) {
+            notes.restore(index, old, board, autoNotes, noteChanges);
+        }
+        if (value != 0) {
+            notes.eliminate(index, value, noteChanges);
+        } else if (autoNotes && notes.set(index, board.candidates(index))) {
+            noteChanges.add(index);
+        }
+        notesChanged();
     }
 
-    private void blendCells() {
-        Random random = new Random();
-        int firstNumber, secondNumber;
-        do {
-            firstNumber = random.nextInt(9)+1;
-            secondNumber = random.nextInt(9)+1;
-        }while (firstNumber == secondNumber);
+    /**
+     * Empties or fills the notes for a new game.
+     */
+    private void resetNotes() {
+        if (autoNotes) {
+            notes.fill(board, noteChanges);
+        } else {
+            notes.clear(noteChanges);
+        }
+        notesChanged();
+    }
 
-        for (int row=0; row<GRID_SIZE; row++) {
-            for (int col=0; col<GRID_SIZE; col++) {
-                if(cells[row][col].getToGuess() == firstNumber) {
-                    for (int newRow=row; newRow<GRID_SIZE; newRow++) {
-                        for (int newCol=0; newCol<GRID_SIZE; newCol++) {
-                            if(cells[newRow][newCol].getToGuess() == secondNumber) {
-                                Cell tmp = cells[row][col];
-                                cells[row][col].setToGuess(cells[newRow][newCol].getToGuess());
-                                cells[newRow][newCol].setToGuess(tmp.getToGuess());
-                                break;
-                            }
-                            break;
-                        }
-                    }
-                    break;
-                }
+    /**
+     * Tells the cell listeners about the cells in noteChanges and empties it.
+     */
+    private void notesChanged() {
+        for (int index = noteChanges.next(0); index >= 0; index = noteChanges.next(index + 1)) {
+            cellChanged(index, CellListener.NOTES);
+        }
+        noteChanges.clear();
+    }
+
+    /**
+     * Fills the grid with a new puzzle and tells the cell listeners about the cells that look different.
+     */
+    private void replaceCells(SudokuUtilities.SudokuLevel level) {
+        if (cellListeners.isEmpty()) {
+            fillCells(level);
+            return;
+        }
+        byte[] oldValues = new byte[Board.CELL_COUNT];
+        CellState[] oldStates = new CellState[Board.CELL_COUNT];
+        CellSet oldConflicts = new CellSet(board.conflictCells());
+        for (int index = 0; index < Board.CELL_COUNT; index++) {
+            oldValues[index] = (byte) board.value(index);
+            oldStates[index] = stateAt(Board.row(index), Board.col(index));
+        }
+        fillCells(level);
+        for (int index = 0; index < Board.CELL_COUNT; index++) {
+            int changes = (board.value(index) != oldValues[index] ? CellListener.VALUE : 0)
+                    | (stateAt(Board.row(index), Board.col(index)) != oldStates[index] ? CellListener.STATE : 0)
+                    | (board.isConflict(index) != oldConflicts.contains(index) ? CellListener.CONFLICT : 0);
+            if (changes != 0) {
+                cellChanged(index, changes);
             }
         }
     }
 
+    private void cellChanged(int index, int changes) {
+        for (CellListener listener : cellListeners) {
+            listener.cellChanged(index, changes);
+        }
+    }
+
+    private void moveMade(int index) {
+        if (moveListener != null) {
+            moveListener.moveMade(index, board.value(index));
+        }
+    }
+
+    private void gameReset() {
+        if (moveListener != null) {
+            moveListener.gameReset(this);
+        }
+    }
+
+    /**
+     * Fills the Sudoku grid with a puzzle of the difficulty level, taken from the pre-generated puzzle pool,
+     * and disguises it with a random symmetry transform.
+     *
+     * @param Level The difficulty level of the Sudoku puzzle.
+     */
+    private void fillCells(SudokuUtilities.SudokuLevel Level) {
+        board.load(PuzzlePool.getDefault().take(Level));
+        board.transform(SudokuTransform.random(RANDOM));
+    }
 
     /**
      * Returns a string representation of the Sudoku grid.
@@ -255,7 +574,7 @@ public class Cells implements Serializable {
         for (int row=0; row<GRID_SIZE; row++) {
             info.append("{");
             for (int col=0; col<GRID_SIZE; col++) {
-                info.append(cells[row][col].getTheGuess()).append(", ");
+                info.append(board.value(Board.index(row, col))).append(", ");
             }
             info.append("}").append("\n");
         }
@@ -0,0 +1,253 @@
+package se.kth.alialaa.labb4.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.CRC32;
+
+/**
+ * Autosaves a game as a snapshot file plus an append-only journal of the moves made since.
+ * <p>
+ * Listening to a game only puts the move on a queue, so the thread playing the game never does
+ * any I/O. A background writer takes the queued moves in batches, appends them to the journal
+ * two bytes per move, and applies them to its own copy of the game. After
+ * {@link #COMPACT_AFTER} moves it folds the journal into a new snapshot and starts an empty
+ * journal. A new game or a cleared board is written as a new snapshot right away.
+ * <p>
+ * The snapshot is in the {@link SudokuIO} format. The journal starts with the magic number
+ * "SDKJ" and the CRC32 of the snapshot it belongs to, so a journal left over from an older
+ * snapshot is never replayed onto a newer one. Every move is a big-endian short holding the
+ * cell index shifted four bits up and the new value in the low four bits. Both files are
+ * replaced through a temporary file, every batch of moves is forced to the device before the
+ * next batch is taken, and a move cut short by a crash is ignored when restoring.
+ */
+public class MoveJournal implements MoveListener, AutoCloseable {
+    public static final int MAGIC = 0x53444B4A;     // "SDKJ"
+    public static final int COMPACT_AFTER = 200;
+    public static final long FLUSH_DELAY_MILLIS = 250;
+
+    private static final String SNAPSHOT_FILE = "autosave.snapshot";
+    private static final String JOURNAL_FILE = "autosave.journal";
+    private static final int HEADER_SIZE = 8;
+    private static final Entry STOP = new Entry(-1, null);
+
+    private final Path snapshotPath;
+    private final Path journalPath;
+    private final BlockingQueue<Entry> queue;
+    private final Thread writer;
+    private Cells shadow;               // the game as journaled so far, only used by the writer
+    private FileChannel journal;        // only used by the writer
+    private int journaledMoves;         // moves in the journal, only used by the writer
+
+    /**
+     * A queued change: a move, or a snapshot of the whole game when snapshot is not null.
+     */
+    private record Entry(int move, ByteBuffer snapshot) {
+    }
+
+    /**
+     * Constructs a journal keeping its files in a directory and starts the background writer.
+     * Nothing is written until a game is attached.
+     *
+     * @param directory The directory of the autosave files, created if missing.
+     * @throws IOException If the directory cannot be created.
+     */
+    public MoveJournal(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        this.snapshotPath = directory.resolve(SNAPSHOT_FILE);
+        this.journalPath = directory.resolve(JOURNAL_FILE);
+        this.queue = new LinkedBlockingQueue<>();
+        this.writer = Thread.ofVirtual().name("sudoku-journal").start(this::writeLoop);
+    }
+
+    /**
+     * Gets the default directory of the autosave files, .sudoku in the user's home directory.
+     *
+     * @return The directory.
+     */
+    public static Path defaultDirectory() {
+        return Path.of(System.getProperty("user.home"), ".sudoku");
+    }
+
+    /**
+     * Restores the autosaved game of a directory by replaying its journal onto its snapshot.
+     *
+     * @param directory The directory of the autosave files.
+     * @return The restored game, or null if there is no autosave.
+     * @throws IOException If the snapshot cannot be read or is corrupt.
+     */
+    public static Cells restore(Path directory) throws IOException {
+        Path snapshotPath = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(snapshotPath)) {
+            return null;
+        }
+        byte[] snapshot = Files.readAllBytes(snapshotPath);
+        Cells cells = SudokuIO.decode(ByteBuffer.wrap(snapshot));
+        Path journalPath = directory.resolve(JOURNAL_FILE);
+        if (Files.exists(journalPath)) {
+            ByteBuffer journal = ByteBuffer.wrap(Files.readAllBytes(journalPath));
+            if (journal.remaining() >= HEADER_SIZE && journal.getInt() == MAGIC && journal.getInt() == crc(snapshot)) {
+                while (journal.remaining() >= 2) {
+                    int move = journal.getShort() & 0xFFFF;
+                    if (!replay(cells, move >> 4, move & 0xF)) {
+                        break;  // a damaged move, nothing after it can be trusted
+                    }
+                }
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * Starts journaling a game: it becomes the new snapshot and every later change is journaled.
+     * Must be called on the thread that plays the game.
+     *
+     * @param cells The game to journal.
+     */
+    public void attach(Cells cells) {
+        cells.setMoveListener(this);
+        gameReset(cells);
+    }
+
+    /**
+     * Queues a move for the journal.
+     *
+     * @param index The index of the cell.
+     * @param value The new value of the cell, zero when it was cleared.
+     */
+    @Override
+    public void moveMade(int index, int value) {
+        queue.offer(new Entry(index << 4 | value, null));
+    }
+
+    /**
+     * Queues a snapshot of the whole game, which replaces the journal.
+     *
+     * @param cells The game after the change.
+     */
+    @Override
+    public void gameReset(Cells cells) {
+        queue.offer(new Entry(0, SudokuIO.encode(cells)));
+    }
+
+    /**
+     * Writes everything queued and stops the background writer.
+     */
+    @Override
+    public void close() {
+        queue.offer(STOP);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        List<Entry> batch = new ArrayList<>();
+        boolean running = true;
+        while (running) {
+            try {
+                batch.add(queue.take());
+                Thread.sleep(FLUSH_DELAY_MILLIS);   // let moves made close together share one write
+            } catch (InterruptedException e) {
+                running = false;
+            }
+            queue.drainTo(batch);
+            running &= !batch.contains(STOP);
+            try {
+                write(batch);
+            } catch (IOException e) {
+                System.err.println("Autosave failed: " + e.getMessage());
+            }
+            batch.clear();
+        }
+        closeJournal();
+    }
+
+    /**
+     * Writes a batch: moves are appended to the journal in one write, a snapshot drops the moves
+     * queued before it.
+     */
+    private void write(List<Entry> batch) throws IOException {
+        ByteBuffer moves = ByteBuffer.allocate(2 * batch.size());
+        for (Entry entry : batch) {
+            if (entry.snapshot() != null) {
+                moves.clear();
+                writeSnapshot(entry.snapshot());
+            } else if (entry != STOP && shadow != null && replay(shadow, entry.move() >> 4, entry.move() & 0xF)) {
+                moves.putShort((short) entry.move());
+            }
+        }
+        if (journal != null && moves.position() > 0) {
+            journaledMoves += moves.position() / 2;
+            moves.flip();
+            while (moves.hasRemaining()) {
+                journal.write(moves);
+            }
+            journal.force(false);
+            if (journaledMoves >= COMPACT_AFTER) {
+                writeSnapshot(SudokuIO.encode(shadow));
+            }
+        }
+    }
+
+    /**
+     * Replaces the snapshot and starts an empty journal for it.
+     */
+    private void writeSnapshot(ByteBuffer snapshot) throws IOException {
+        closeJournal();
+        shadow = SudokuIO.decode(snapshot.duplicate());
+        byte[] bytes = new byte[snapshot.remaining()];
+        snapshot.duplicate().get(bytes);
+        SudokuIO.writeAtomically(snapshotPath, snapshot);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(crc(bytes)).flip();
+        SudokuIO.writeAtomically(journalPath, header);
+        journal = FileChannel.open(journalPath, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        journaledMoves = 0;
+    }
+
+    private void closeJournal() {
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                System.err.println("Autosave failed: " + e.getMessage());
+            }
+            journal = null;
+        }
+    }
+
+    /**
+     * Applies a move to a game.
+     *
+     * @return False if the move is not a valid move, true otherwise.
+     */
+    private static boolean replay(Cells cells, int index, int value) {
+        if (index >= Board.CELL_COUNT || value > 9) {
+            return false;
+        }
+        int row = Board.row(index);
+        int col = Board.col(index);
+        if (value == 0) {
+            cells.clear(row, col);
+        } else {
+            cells.guess(row, col, value);
+        }
+        return true;
+    }
+
+    private static int crc(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+}
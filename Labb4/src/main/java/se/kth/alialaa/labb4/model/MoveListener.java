@@ -0,0 +1,23 @@
+package se.kth.alialaa.labb4.model;
+
+/**
+ * Receives every change the player makes to a game, for example to journal it.
+ * The methods are called on the thread that changes the game and should return quickly.
+ */
+public interface MoveListener {
+
+    /**
+     * Called when a single cell is guessed, cleared or filled by a hint.
+     *
+     * @param index The index of the cell, see {@link Board#index(int, int)}.
+     * @param value The new value of the cell, zero when it was cleared.
+     */
+    void moveMade(int index, int value);
+
+    /**
+     * Called when the whole game changes at once, by a new game or by clearing all guesses.
+     *
+     * @param cells The game after the change.
+     */
+    void gameReset(Cells cells);
+}
@@ -0,0 +1,135 @@
+package se.kth.alialaa.labb4.model;
+
+import java.util.Arrays;
+
+/**
+ * The pencil marks of a game: for every cell a 9-bit mask of the digits the player noted as
+ * possible (bit d-1 for digit d).
+ * <p>
+ * When a digit is placed, it is removed from the notes of the peers that had it, and the peers
+ * it was removed from are remembered as a 20-bit mask in the placed cell. When the digit is
+ * removed again, it is given back to those peers where it is still a candidate. Both take one
+ * pass over the 20 peers. The notes are part of the play and are not saved with the game.
+ */
+public final class Notes {
+    private final short[] marks;        // the noted digits of every cell
+    private final int[] eliminated;     // [index] bit n set when the digit of the cell was removed from peer n
+
+    /**
+     * Constructs notes with no marks.
+     */
+    public Notes() {
+        this.marks = new short[Board.CELL_COUNT];
+        this.eliminated = new int[Board.CELL_COUNT];
+    }
+
+    /**
+     * Gets the noted digits of a cell.
+     *
+     * @param index The index of the cell.
+     * @return A 9-bit mask with bit d-1 set when digit d is noted.
+     */
+    public int get(int index) {
+        return marks[index];
+    }
+
+    /**
+     * Sets the noted digits of a cell.
+     *
+     * @param index The index of the cell.
+     * @param mask  A 9-bit mask with bit d-1 set when digit d is noted.
+     * @return True if the notes changed, false otherwise.
+     */
+    public boolean set(int index, int mask) {
+        if (marks[index] == (mask & Board.ALL_DIGITS)) {
+            return false;
+        }
+        marks[index] = (short) (mask & Board.ALL_DIGITS);
+        return true;
+    }
+
+    /**
+     * Removes a placed digit from the notes of the peers of a cell, and remembers which peers lost it.
+     *
+     * @param index   The index of the cell the digit was placed in.
+     * @param digit   The digit (1-9).
+     * @param changed Receives the peers whose notes changed.
+     */
+    public void eliminate(int index, int digit, CellSet changed) {
+        int bit = Board.bit(digit);
+        int removed = 0;
+        for (int n = 0; n < Board.PEER_COUNT; n++) {
+            int peer = Board.peer(index, n);
+            if ((marks[peer] & bit) != 0) {
+                marks[peer] &= (short) ~bit;
+                removed |= 1 << n;
+                changed.add(peer);
+            }
+        }
+        eliminated[index] = removed;
+    }
+
+    /**
+     * Gives a removed digit back to the peers that lost it when it was placed, where the board
+     * still allows it.
+     *
+     * @param index    The index of the cell the digit was removed from.
+     * @param digit    The digit (1-9).
+     * @param board    The board after the digit was removed.
+     * @param allPeers True to give the digit to every peer that allows it, as automatic notes
+     *                 do, false to give it only to the peers that lost it.
+     * @param changed  Receives the peers whose notes changed.
+     */
+    public void restore(int index, int digit, Board board, boolean allPeers, CellSet changed) {
+        int bit = Board.bit(digit);
+        int removed = allPeers ? (1 << Board.PEER_COUNT) - 1 : eliminated[index];
+        eliminated[index] = 0;
+        while (removed != 0) {
+            int n = Integer.numberOfTrailingZeros(removed);
+            removed &= removed - 1;
+            int peer = Board.peer(index, n);
+            if (board.value(peer) == 0 && (board.candidates(peer) & bit) != 0 && (marks[peer] & bit) == 0) {
+                marks[peer] |= (short) bit;
+                changed.add(peer);
+            }
+        }
+    }
+
+    /**
+     * Notes every candidate of every empty cell, the digits not used by a peer.
+     *
+     * @param board   The board.
+     * @param changed Receives the cells whose notes changed.
+     */
+    public void fill(Board board, CellSet changed) {
+        for (int index = 0; index < Board.CELL_COUNT; index++) {
+            if (set(index, board.value(index) == 0 ? board.candidates(index) : 0)) {
+                changed.add(index);
+            }
+            // as if the digit of a filled cell had been placed after filling: it was removed from the empty peers
+            int removed = 0;
+            if (board.value(index) != 0 && !board.isGiven(index)) {
+                for (int n = 0; n < Board.PEER_COUNT; n++) {
+                    if (board.value(Board.peer(index, n)) == 0) {
+                        removed |= 1 << n;
+                    }
+                }
+            }
+            eliminated[index] = removed;
+        }
+    }
+
+    /**
+     * Removes every note.
+     *
+     * @param changed Receives the cells whose notes changed.
+     */
+    public void clear(CellSet changed) {
+        for (int index = 0; index < Board.CELL_COUNT; index++) {
+            if (set(index, 0)) {
+                changed.add(index);
+            }
+        }
+        Arrays.fill(eliminated, 0);
+    }
+}
@@ -0,0 +1,160 @@
+package se.kth.alialaa.labb4.model;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A hash index of puzzles keyed on their canonical form, so a puzzle is found again under any
+ * relabeling, transposition or band preserving row and column order. Use it to deduplicate
+ * imported collections or to remember what is known about a puzzle, such as its rating.
+ * Values are shared by all symmetric copies of a puzzle, so they should not depend on the
+ * orientation, for example a rating or a solution count rather than a solution grid.
+ * Instances are thread safe, so a collection can be indexed from a parallel stream.
+ *
+ * @param <V> The type of the values stored for every puzzle.
+ */
+public class PuzzleIndex<V> {
+    private final ConcurrentMap<Key, V> entries;
+
+    /**
+     * Constructs a new empty index.
+     */
+    public PuzzleIndex() {
+        this.entries = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Stores a value for a puzzle unless one of its symmetric copies is already indexed.
+     *
+     * @param grid  The 81 digits of the puzzle, zero for an empty cell. Not modified.
+     * @param value The value to store.
+     * @return True if the puzzle was new, false if it was a duplicate and nothing changed.
+     * @throws IllegalArgumentException If the grid does not have 81 digits between 0 and 9.
+     */
+    public boolean add(int[] grid, V value) {
+        return entries.putIfAbsent(key(grid), value) == null;
+    }
+
+    /**
+     * Stores a value for a puzzle written as a string unless one of its symmetric copies is already indexed.
+     *
+     * @param stringRepresentation A string of 81 characters, 0-9, '0' representing an empty cell.
+     * @param value                The value to store.
+     * @return True if the puzzle was new, false if it was a duplicate and nothing changed.
+     * @throws IllegalArgumentException If the string is not 81 characters 0-9.
+     */
+    public boolean add(String stringRepresentation, V value) {
+        return add(SudokuUtilities.convertStringToIntArray(stringRepresentation), value);
+    }
+
+    /**
+     * Stores a value for a puzzle, replacing the value of any symmetric copy.
+     *
+     * @param grid  The 81 digits of the puzzle, zero for an empty cell. Not modified.
+     * @param value The value to store.
+     * @return The value replaced, or null if the puzzle was new.
+     * @throws IllegalArgumentException If the grid does not have 81 digits between 0 and 9.
+     */
+    public V put(int[] grid, V value) {
+        return entries.put(key(grid), value);
+    }
+
+    /**
+     * Gets the value stored for a puzzle or any of its symmetric copies.
+     *
+     * @param grid The 81 digits of the puzzle, zero for an empty cell. Not modified.
+     * @return The value, or null if the puzzle is not indexed.
+     * @throws IllegalArgumentException If the grid does not have 81 digits between 0 and 9.
+     */
+    public V get(int[] grid) {
+        return entries.get(key(grid));
+    }
+
+    /**
+     * Checks if a puzzle or any of its symmetric copies is indexed.
+     *
+     * @param grid The 81 digits of the puzzle, zero for an empty cell. Not modified.
+     * @return True if the puzzle is indexed, false otherwise.
+     * @throws IllegalArgumentException If the grid does not have 81 digits between 0 and 9.
+     */
+    public boolean contains(int[] grid) {
+        return entries.containsKey(key(grid));
+    }
+
+    /**
+     * Gets the number of distinct puzzles indexed.
+     *
+     * @return The number of canonical forms in the index.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Removes all puzzles from the index.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Computes the key of a puzzle, its canonical form packed four bits per cell.
+     *
+     * @param grid The 81 digits of the puzzle, zero for an empty cell. Not modified.
+     * @return The key shared by the puzzle and all its symmetric copies.
+     * @throws IllegalArgumentException If the grid does not have 81 digits between 0 and 9.
+     */
+    public static Key key(int[] grid) {
+        return new Key(SudokuCanonicalizer.canonicalize(grid));
+    }
+
+    /**
+     * The canonical form of a puzzle packed into six longs, 16 cells in each.
+     */
+    public static final class Key {
+        private final long[] packed;
+        private final int hash;
+
+        private Key(int[] canonical) {
+            packed = new long[(Board.CELL_COUNT + 15) / 16];
+            for (int index = 0; index < Board.CELL_COUNT; index++) {
+                packed[index >> 4] |= (long) canonical[index] << ((index & 15) << 2);
+            }
+            hash = Arrays.hashCode(packed);
+        }
+
+        /**
+         * Gets the canonical form the key was made from.
+         *
+         * @return The 81 digits of the canonical form.
+         */
+        public int[] canonical() {
+            int[] grid = new int[Board.CELL_COUNT];
+            for (int index = 0; index < Board.CELL_COUNT; index++) {
+                grid[index] = (int) (packed[index >> 4] >>> ((index & 15) << 2) & 0xF);
+            }
+            return grid;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key key && key.hash == hash && Arrays.equals(key.packed, packed);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        /**
+         * Returns a string representation of the key.
+         *
+         * @return The canonical form as 81 characters 0-9.
+         */
+        @Override
+        public String toString() {
+            return SudokuUtilities.convertIntArrayToString(canonical());
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package se.kth.alialaa.labb4.model;
+
+import se.kth.alialaa.labb4.model.SudokuUtilities.SudokuLevel;
+import se.kth.alialaa.labb4.model.solver.DifficultyRater;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A read-only library of puzzles in a binary file, memory mapped so that any puzzle is read in
+ * constant time without loading the file into the heap.
+ * <p>
+ * The file starts with a 64 byte header: the magic number "SDKL", the version, the record size,
+ * the number of records, and the first record and number of records of every level. It is
+ * followed by fixed size records sorted by level and then by rating. A record holds the solution
+ * as 81 4-bit digits (41 bytes), an 81-bit mask of the givens (11 bytes), the rating as an
+ * unsigned short, the level and one byte of padding, 56 bytes in all.
+ * A file of up to about 38 million puzzles fits in one mapping. Instances are thread safe.
+ */
+public class PuzzleLibrary {
+    public static final int MAGIC = 0x53444B4C;     // "SDKL"
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 64;
+    public static final int RECORD_SIZE = 56;
+
+    private static final int SOLUTION_BYTES = (Board.CELL_COUNT + 1) / 2;
+    private static final int GIVEN_BYTES = (Board.CELL_COUNT + 7) / 8;
+    private static final int RATING_OFFSET = SOLUTION_BYTES + GIVEN_BYTES;
+    private static final int LEVEL_OFFSET = RATING_OFFSET + 2;
+    private static final int LEVELS_OFFSET = 12;   // the first record and count of every level in the header
+
+    private final MappedByteBuffer buffer;
+    private final int size;
+    private final int[] levelFirst;
+    private final int[] levelCount;
+
+    private PuzzleLibrary(MappedByteBuffer buffer, int size, int[] levelFirst, int[] levelCount) {
+        this.buffer = buffer;
+        this.size = size;
+        this.levelFirst = levelFirst;
+        this.levelCount = levelCount;
+    }
+
+    /**
+     * Opens a library file.
+     *
+     * @param path The path of the file.
+     * @return The library, mapped into memory.
+     * @throws IOException If the file cannot be read or is not a valid library.
+     */
+    public static PuzzleLibrary open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length < HEADER_SIZE || length > Integer.MAX_VALUE) {
+                throw new IOException("not a puzzle library: " + length + " bytes");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            if (buffer.getInt(0) != MAGIC || buffer.getShort(4) != VERSION || buffer.getShort(6) != RECORD_SIZE) {
+                throw new IOException("not a puzzle library of version " + VERSION);
+            }
+            int size = buffer.getInt(8);
+            if (size < 0 || HEADER_SIZE + (long) size * RECORD_SIZE != length) {
+                throw new IOException("puzzle library of " + size + " records has " + length + " bytes");
+            }
+            int levels = SudokuLevel.values().length;
+            int[] levelFirst = new int[levels];
+            int[] levelCount = new int[levels];
+            for (int level = 0; level < levels; level++) {
+                levelFirst[level] = buffer.getInt(LEVELS_OFFSET + level * 8);
+                levelCount[level] = buffer.getInt(LEVELS_OFFSET + level * 8 + 4);
+                if (levelFirst[level] < 0 || levelCount[level] < 0 || (long) levelFirst[level] + levelCount[level] > size) {
+                    throw new IOException("bad range for level " + SudokuLevel.values()[level]);
+                }
+            }
+            return new PuzzleLibrary(buffer, size, levelFirst, levelCount);
+        }
+    }
+
+    /**
+     * Gets the number of puzzles in the library.
+     *
+     * @return The number of records.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the number of puzzles of a level.
+     *
+     * @param level The difficulty level.
+     * @return The number of records of the level.
+     */
+    public int size(SudokuLevel level) {
+        return levelCount[level.ordinal()];
+    }
+
+    /**
+     * Gets a puzzle.
+     *
+     * @param n The index of the puzzle, between 0 and size() - 1.
+     * @return A 3-dimensional int matrix in the format of {@link SudokuUtilities#generateSudokuMatrix(SudokuLevel)}.
+     * @throws IndexOutOfBoundsException If there is no puzzle n.
+     */
+    public int[][][] get(int n) {
+        int[] givens = new int[Board.CELL_COUNT];
+        int[] solution = new int[Board.CELL_COUNT];
+        get(n, givens, solution);
+        return SudokuUtilities.toSudokuMatrix(givens, solution);
+    }
+
+    /**
+     * Gets a puzzle into existing arrays, without creating any objects.
+     *
+     * @param n        The index of the puzzle, between 0 and size() - 1.
+     * @param givens   The array of 81 cells to fill with the initial values, zero representing an empty cell.
+     * @param solution The array of 81 cells to fill with the solution.
+     * @throws IndexOutOfBoundsException If there is no puzzle n.
+     */
+    public void get(int n, int[] givens, int[] solution) {
+        int offset = offset(n);
+        for (int index = 0; index < Board.CELL_COUNT; index++) {
+            int packed = buffer.get(offset + index / 2);
+            solution[index] = (index % 2 == 0 ? packed : packed >> 4) & 0xF;
+            givens[index] = (buffer.get(offset + SOLUTION_BYTES + index / 8) & 1 << index % 8) != 0 ? solution[index] : 0;
+        }
+    }
+
+    /**
+     * Gets a puzzle of a level. The puzzles of a level are ordered by rating, easiest first.
+     *
+     * @param level The difficulty level.
+     * @param n     The index of the puzzle within the level, between 0 and size(level) - 1.
+     * @return A 3-dimensional int matrix in the format of {@link SudokuUtilities#generateSudokuMatrix(SudokuLevel)}.
+     * @throws IndexOutOfBoundsException If the level has no puzzle n.
+     */
+    public int[][][] get(SudokuLevel level, int n) {
+        if (n < 0 || n >= levelCount[level.ordinal()]) {
+            throw new IndexOutOfBoundsException("puzzle " + n + " of " + levelCount[level.ordinal()]);
+        }
+        return get(levelFirst[level.ordinal()] + n);
+    }
+
+    /**
+     * Gets a random puzzle of a level.
+     *
+     * @param level  The difficulty level.
+     * @param random The source of randomness.
+     * @return A 3-dimensional int matrix, or null if the library has no puzzle of the level.
+     */
+    public int[][][] random(SudokuLevel level, Random random) {
+        int count = levelCount[level.ordinal()];
+        return count == 0 ? null : get(level, random.nextInt(count));
+    }
+
+    /**
+     * Gets the rating of a puzzle.
+     *
+     * @param n The index of the puzzle.
+     * @return The rating, the score of a {@link DifficultyRater} when the library was built.
+     * @throws IndexOutOfBoundsException If there is no puzzle n.
+     */
+    public int rating(int n) {
+        return buffer.getShort(offset(n) + RATING_OFFSET) & 0xFFFF;
+    }
+
+    /**
+     * Gets the level of a puzzle.
+     *
+     * @param n The index of the puzzle.
+     * @return The difficulty level.
+     * @throws IndexOutOfBoundsException If there is no puzzle n.
+     */
+    public SudokuLevel level(int n) {
+        return SudokuLevel.values()[buffer.get(offset(n) + LEVEL_OFFSET)];
+    }
+
+    /**
+     * Finds the first puzzle of a level with at least a rating, by binary search.
+     *
+     * @param level  The difficulty level.
+     * @param rating The lowest rating wanted.
+     * @return The index of the puzzle within the level, size(level) if every puzzle is rated lower.
+     */
+    public int firstWithRating(SudokuLevel level, int rating) {
+        int first = levelFirst[level.ordinal()];
+        int low = 0;
+        int high = levelCount[level.ordinal()];
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (rating(first + middle) < rating) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int offset(int n) {
+        if (n < 0 || n >= size) {
+            throw new IndexOutOfBoundsException("puzzle " + n + " of " + size);
+        }
+        return HEADER_SIZE + n * RECORD_SIZE;
+    }
+
+    /**
+     * Returns a string representation of the library.
+     *
+     * @return A string with the number of puzzles per level.
+     */
+    @Override
+    public String toString() {
+        StringBuilder info = new StringBuilder();
+        info.append("puzzles: ").append(size);
+        for (SudokuLevel level : SudokuLevel.values()) {
+            info.append(", ").append(level).append(": ").append(size(level));
+        }
+        return info.toString();
+    }
+
+    /**
+     * Collects puzzles and writes them as a library file. The records are packed as they are
+     * added, and sorted by level and rating when written.
+     */
+    public static class Builder {
+        private final List<byte[]> records;
+        private final DifficultyRater rater;
+
+        /**
+         * Constructs a new builder without puzzles.
+         */
+        public Builder() {
+            this.records = new ArrayList<>();
+            this.rater = new DifficultyRater();
+        }
+
+        /**
+         * Adds a puzzle, rating it with a {@link DifficultyRater}.
+         *
+         * @param givens   The 81 initial values in row order, zero representing an empty cell.
+         * @param solution The 81 solution values in row order.
+         * @return This builder.
+         * @throws IllegalArgumentException If the grids do not have 81 digits or a given differs from the solution.
+         */
+        public Builder add(int[] givens, int[] solution) {
+            DifficultyRater.Rating rating = rater.rate(givens);
+            return add(givens, solution, rating.score(), rating.level());
+        }
+
+        /**
+         * Adds a puzzle with a known rating and level.
+         *
+         * @param givens   The 81 initial values in row order, zero representing an empty cell.
+         * @param solution The 81 solution values in row order.
+         * @param rating   The rating, clamped to 0-65535.
+         * @param level    The difficulty level.
+         * @return This builder.
+         * @throws IllegalArgumentException If the grids do not have 81 digits or a given differs from the solution.
+         */
+        public Builder add(int[] givens, int[] solution, int rating, SudokuLevel level) {
+            if (givens.length != Board.CELL_COUNT || solution.length != Board.CELL_COUNT) {
+                throw new IllegalArgumentException("grid length " + givens.length + ", " + solution.length);
+            }
+            byte[] record = new byte[RECORD_SIZE];
+            for (int index = 0; index < Board.CELL_COUNT; index++) {
+                int digit = solution[index];
+                if (digit < 1 || digit > 9 || givens[index] != 0 && givens[index] != digit) {
+                    throw new IllegalArgumentException("cell " + index + ": given " + givens[index] + ", solution " + digit);
+                }
+                record[index / 2] |= (byte) (index % 2 == 0 ? digit : digit << 4);
+                if (givens[index] != 0) {
+                    record[SOLUTION_BYTES + index / 8] |= (byte) (1 << index % 8);
+                }
+            }
+            int clamped = Math.max(0, Math.min(0xFFFF, rating));
+            record[RATING_OFFSET] = (byte) (clamped >> 8);
+            record[RATING_OFFSET + 1] = (byte) clamped;
+            record[LEVEL_OFFSET] = (byte) level.ordinal();
+            records.add(record);
+            return this;
+        }
+
+        /**
+         * Gets the number of puzzles added.
+         *
+         * @return The number of records.
+         */
+        public int size() {
+            return records.size();
+        }
+
+        /**
+         * Writes the library file, replacing any existing file.
+         *
+         * @param path The path of the file.
+         * @throws IOException If the file cannot be written.
+         */
+        public void write(Path path) throws IOException {
+            records.sort(Comparator.<byte[]>comparingInt(record -> record[LEVEL_OFFSET])
+                    .thenComparingInt(record -> (record[RATING_OFFSET] & 0xFF) << 8 | record[RATING_OFFSET + 1] & 0xFF));
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putShort((short) VERSION).putShort((short) RECORD_SIZE).putInt(records.size());
+            int first = 0;
+            for (SudokuLevel level : SudokuLevel.values()) {
+                int count = 0;
+                while (first + count < records.size() && records.get(first + count)[LEVEL_OFFSET] == level.ordinal()) {
+                    count++;
+                }
+                header.putInt(first).putInt(count);
+                first += count;
+            }
+            header.clear();
+
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                writeFully(channel, header);
+                ByteBuffer chunk = ByteBuffer.allocate(RECORD_SIZE * 1024);
+                for (byte[] record : records) {
+                    if (chunk.remaining() < RECORD_SIZE) {
+                        writeFully(channel, chunk.flip());
+                        chunk.clear();
+                    }
+                    chunk.put(record);
+                }
+                writeFully(channel, chunk.flip());
+            }
+        }
+
+        private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package se.kth.alialaa.labb4.model;
+
+import se.kth.alialaa.labb4.model.solver.BitmaskSolver;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streams puzzles to and from text files in the common one puzzle per line format.
+ * <p>
+ * A line starts with the 81 cells of the puzzle in row order, '1'-'9' for a given and '0' or
+ * '.' for an empty cell. It may be followed by a separator (a space, tab, ',', ';', ':' or '|')
+ * and the 81 digits of the solution. Anything after that, or after the puzzle when the next
+ * field is not a solution, is ignored, so ratings and comments can be kept on the line.
+ * Empty lines and lines starting with '#' are skipped.
+ * <p>
+ * Files are read and written through a fixed size buffer and the cells are parsed straight from
+ * the bytes, so a file of any number of lines is streamed with constant memory.
+ */
+public class PuzzleLines {
+    public static final int LINE_LENGTH = Board.CELL_COUNT;
+
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int MAX_LINE_LENGTH = 4096;
+    private static final int MIN_UNIQUE_CLUES = 17;     // no puzzle with fewer clues has a unique solution
+
+    private PuzzleLines() {
+
+    }
+
+    /**
+     * Receives the puzzles of a file as they are read.
+     */
+    @FunctionalInterface
+    public interface PuzzleConsumer {
+
+        /**
+         * Called for every puzzle. The arrays are reused for the next puzzle, so copy them to keep them.
+         *
+         * @param givens   The 81 initial values in row order, zero representing an empty cell.
+         * @param solution The 81 solution values in row order, or null if the line has no solution.
+         */
+        void accept(int[] givens, int[] solution);
+    }
+
+    /**
+     * Reads every puzzle of a file.
+     *
+     * @param path     The path of the file.
+     * @param consumer Receives the puzzles in the order of the file.
+     * @return The number of puzzles read.
+     * @throws IOException If the file cannot be read or a line is not a valid puzzle, with its line number.
+     */
+    public static long read(Path path, PuzzleConsumer consumer) throws IOException {
+        int[] givens = new int[Board.CELL_COUNT];
+        int[] solution = new int[Board.CELL_COUNT];
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        long lineNumber = 0;
+        long puzzles = 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            boolean endOfFile = false;
+            while (!endOfFile) {
+                endOfFile = channel.read(buffer) < 0;
+                buffer.flip();
+                int start = buffer.position();
+                int limit = buffer.limit();
+                for (int i = start; i < limit; i++) {
+                    if (buffer.get(i) == '\n') {
+                        lineNumber++;
+                        puzzles += parseLine(buffer, start, i, lineNumber, givens, solution, consumer);
+                        start = i + 1;
+                    }
+                }
+                if (endOfFile && start < limit) {
+                    lineNumber++;
+                    puzzles += parseLine(buffer, start, limit, lineNumber, givens, solution, consumer);
+                    start = limit;
+                }
+                if (limit - start > MAX_LINE_LENGTH) {
+                    throw new IOException("line " + (lineNumber + 1) + ": longer than " + MAX_LINE_LENGTH + " characters");
+                }
+                buffer.position(start);
+                buffer.compact();
+            }
+        }
+        return puzzles;
+    }
+
+    /**
+     * Reads every puzzle of a file into a library builder. Puzzles without a solution are solved,
+     * and skipped unless their solution is unique. Puzzles with fewer than 17 clues are skipped
+     * without solving, as they never have a unique solution.
+     *
+     * @param path    The path of the file.
+     * @param builder The builder to add the puzzles to, which rates them.
+     * @return The number of puzzles added.
+     * @throws IOException If the file cannot be read or a line is not a valid puzzle, with its line number.
+     */
+    public static long read(Path path, PuzzleLibrary.Builder builder) throws IOException {
+        BitmaskSolver solver = new BitmaskSolver();
+        long before = builder.size();
+        read(path, (givens, solution) -> {
+            if (clues(givens) < MIN_UNIQUE_CLUES) {
+                return;
+            }
+            if (solution != null) {
+                builder.add(givens, solution);
+            } else if (solver.countSolutions(givens, 2) == 1) {
+                builder.add(givens, solver.solve(givens));
+            }
+        });
+        return builder.size() - before;
+    }
+
+    /**
+     * Writes every puzzle of a library with its solution, in the order of the library.
+     *
+     * @param path    The path of the file, replaced if it exists.
+     * @param library The library.
+     * @return The number of puzzles written.
+     * @throws IOException If the file cannot be written.
+     */
+    public static long write(Path path, PuzzleLibrary library) throws IOException {
+        int[] givens = new int[Board.CELL_COUNT];
+        int[] solution = new int[Board.CELL_COUNT];
+        try (Writer writer = new Writer(path)) {
+            for (int n = 0; n < library.size(); n++) {
+                library.get(n, givens, solution);
+                writer.write(givens, solution);
+            }
+        }
+        return library.size();
+    }
+
+    private static int clues(int[] givens) {
+        int clues = 0;
+        for (int digit : givens) {
+            if (digit != 0) {
+                clues++;
+            }
+        }
+        return clues;
+    }
+
+    /**
+     * Parses the line between start and end, excluding the line feed.
+     *
+     * @return 1 if the line was a puzzle, 0 if it was skipped.
+     */
+    private static int parseLine(ByteBuffer buffer, int start, int end, long lineNumber,
+                                 int[] givens, int[] solution, PuzzleConsumer consumer) throws IOException {
+        if (end > start && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+        if (end == start || buffer.get(start) == '#') {
+            return 0;
+        }
+        if (end - start < LINE_LENGTH || end - start > LINE_LENGTH && !isSeparator(buffer.get(start + LINE_LENGTH))) {
+            throw new IOException("line " + lineNumber + ": a puzzle is " + LINE_LENGTH + " characters");
+        }
+        boolean hasSolution = isSolution(buffer, start + LINE_LENGTH + 1, end);
+        try {
+            parseGrid(buffer, start, givens);
+            if (hasSolution) {
+                parseGrid(buffer, start + LINE_LENGTH + 1, solution);
+                for (int index = 0; index < Board.CELL_COUNT; index++) {
+                    if (solution[index] == 0 || givens[index] != 0 && givens[index] != solution[index]) {
+                        throw new IllegalArgumentException("cell " + index + ": given " + givens[index] + ", solution " + solution[index]);
+                    }
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IOException("line " + lineNumber + ": " + e.getMessage(), e);
+        }
+        consumer.accept(givens, hasSolution ? solution : null);
+        return 1;
+    }
+
+    /**
+     * Checks if the field starting at start is a grid of exactly 81 cells.
+     */
+    private static boolean isSolution(ByteBuffer buffer, int start, int end) {
+        if (end - start < LINE_LENGTH || end - start > LINE_LENGTH && !isSeparator(buffer.get(start + LINE_LENGTH))) {
+            return false;
+        }
+        for (int i = start; i < start + LINE_LENGTH; i++) {
+            byte ch = buffer.get(i);
+            if (ch != '.' && (ch < '0' || ch > '9')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void parseGrid(ByteBuffer buffer, int start, int[] values) {
+        for (int index = 0; index < values.length; index++) {
+            values[index] = SudokuUtilities.convertCharToSudokuInt(buffer.get(start + index));
+        }
+    }
+
+    private static boolean isSeparator(byte ch) {
+        switch (ch) {
+            case ' ':
+            case '\t':
+            case ',':
+            case ';':
+            case ':':
+            case '|':
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Writes puzzles to a file, one per line, '.' representing an empty cell and a solution
+     * separated by a comma. Lines are collected in a fixed size buffer and written in large chunks.
+     */
+    public static class Writer implements AutoCloseable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+
+        /**
+         * Opens a file for writing, replacing any existing file.
+         *
+         * @param path The path of the file.
+         * @throws IOException If the file cannot be opened.
+         */
+        public Writer(Path path) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+
+        /**
+         * Writes a puzzle.
+         *
+         * @param givens   The 81 initial values in row order, zero representing an empty cell.
+         * @param solution The 81 solution values in row order, or null to write no solution.
+         * @throws IOException If the file cannot be written.
+         * @throws IllegalArgumentException If a grid does not have 81 values between 0 and 9.
+         */
+        public void write(int[] givens, int[] solution) throws IOException {
+            checkGrid(givens);
+            if (solution != null) {
+                checkGrid(solution);
+            }
+            if (buffer.remaining() < 2 * LINE_LENGTH + 2) {
+                flush();
+            }
+            putGrid(givens);
+            if (solution != null) {
+                buffer.put((byte) ',');
+                putGrid(solution);
+            }
+            buffer.put((byte) '\n');
+        }
+
+        /**
+         * Writes the lines collected so far to the file.
+         *
+         * @throws IOException If the file cannot be written.
+         */
+        public void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        /**
+         * Writes the lines collected so far and closes the file.
+         *
+         * @throws IOException If the file cannot be written.
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                channel.close();
+            }
+        }
+
+        private void putGrid(int[] values) {
+            for (int value : values) {
+                buffer.put((byte) (value == 0 ? '.' : '0' + value));
+            }
+        }
+
+        private static void checkGrid(int[] values) {
+            if (values.length != Board.CELL_COUNT) {
+                throw new IllegalArgumentException("values length " + values.length);
+            }
+            for (int value : values) {
+                if (value < 0 || value > 9) throw new IllegalArgumentException("value " + value);
+            }
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package se.kth.alialaa.labb4.model;
+
+import se.kth.alialaa.labb4.model.SudokuUtilities.SudokuLevel;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded pool of pre-generated puzzles for every level, filled by background virtual threads.
+ * Taking a puzzle never waits for the background work: when the pool of a level is empty, a
+ * random {@link SudokuTransform} of the last puzzle generated for the level is served instead,
+ * which has the same difficulty and costs no solving, and the take is counted as a miss. Only
+ * before the first puzzle of a level is ready is a puzzle generated on the calling thread, which
+ * {@link #awaitReady(long, TimeUnit)} avoids. Whenever a level drops to the low-water mark, a
+ * refill of that level is started. Puzzles come from
+ * {@link SudokuUtilities#generateSudokuMatrix(SudokuLevel)}, so a puzzle library is used when one is set.
+ * <p>
+ * The size of the default pool is read from the system properties sudoku.pool.capacity and
+ * sudoku.pool.lowWaterMark.
+ */
+public class PuzzlePool {
+    public static final int DEFAULT_CAPACITY = 8;
+    public static final int DEFAULT_LOW_WATER_MARK = 3;
+
+    private static final PuzzlePool DEFAULT = createDefault();
+
+    private final int lowWaterMark;
+    private final Map<SudokuLevel, BlockingQueue<int[][][]>> puzzles;
+    private final Map<SudokuLevel, AtomicBoolean> refilling;    // at most one refill per level at a time
+    private final Map<SudokuLevel, AtomicReference<int[][][]>> lastGenerated;  // transformed when the level is empty
+    private final CountDownLatch ready;                         // counted down when a level has its first puzzle
+    private final ExecutorService executor;
+    private final LongAdder hits;
+    private final LongAdder misses;
+
+    /**
+     * Constructs a new pool and starts filling every level in the background.
+     *
+     * @param capacity     The number of puzzles kept ready per level.
+     * @param lowWaterMark The number of puzzles left in a level that triggers a refill.
+     * @throws IllegalArgumentException If the capacity is not positive or the low-water mark is not below it.
+     */
+    public PuzzlePool(int capacity, int lowWaterMark) {
+        if (capacity <= 0 || lowWaterMark < 0 || lowWaterMark >= capacity) {
+            throw new IllegalArgumentException("capacity " + capacity + ", low-water mark " + lowWaterMark);
+        }
+        this.lowWaterMark = lowWaterMark;
+        this.puzzles = new EnumMap<>(SudokuLevel.class);
+        this.refilling = new EnumMap<>(SudokuLevel.class);
+        this.lastGenerated = new EnumMap<>(SudokuLevel.class);
+        this.ready = new CountDownLatch(SudokuLevel.values().length);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        for (SudokuLevel level : SudokuLevel.values()) {
+            puzzles.put(level, new ArrayBlockingQueue<>(capacity));
+            refilling.put(level, new AtomicBoolean());
+            lastGenerated.put(level, new AtomicReference<>());
+        }
+        for (SudokuLevel level : SudokuLevel.values()) {
+            refill(level);
+        }
+    }
+
+    /**
+     * Gets the pool shared by the game.
+     *
+     * @return The default pool.
+     */
+    public static PuzzlePool getDefault() {
+        return DEFAULT;
+    }
+
+    private static PuzzlePool createDefault() {
+        int capacity = Integer.getInteger("sudoku.pool.capacity", DEFAULT_CAPACITY);
+        int lowWaterMark = Integer.getInteger("sudoku.pool.lowWaterMark", DEFAULT_LOW_WATER_MARK);
+        try {
+            return new PuzzlePool(capacity, lowWaterMark);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Bad puzzle pool size, using the defaults: " + e.getMessage());
+            return new PuzzlePool(DEFAULT_CAPACITY, DEFAULT_LOW_WATER_MARK);
+        }
+    }
+
+    /**
+     * Waits until every level has a puzzle ready, so no take generates a puzzle on the calling thread.
+     *
+     * @param timeout The longest time to wait.
+     * @param unit    The unit of the timeout.
+     * @return True if every level is ready, false if the time ran out.
+     * @throws InterruptedException If the waiting thread is interrupted.
+     */
+    public boolean awaitReady(long timeout, TimeUnit unit) throws InterruptedException {
+        return ready.await(timeout, unit);
+    }
+
+    /**
+     * Takes a puzzle of a level, without waiting for the background generation. When the level
+     * is empty, a transform of the last puzzle generated for it is returned.
+     *
+     * @param level The difficulty level.
+     * @return A 3-dimensional int matrix in the format of {@link SudokuUtilities#generateSudokuMatrix(SudokuLevel)}.
+     */
+    public int[][][] take(SudokuLevel level) {
+        BlockingQueue<int[][][]> queue = puzzles.get(level);
+        int[][][] puzzle = queue.poll();
+        if (puzzle != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+            int[][][] last = lastGenerated.get(level).get();
+            puzzle = last != null ? transform(last, SudokuTransform.random(ThreadLocalRandom.current()))
+                    : SudokuUtilities.generateSudokuMatrix(level);
+        }
+        if (queue.size() <= lowWaterMark) {
+            refill(level);
+        }
+        return puzzle;
+    }
+
+    /**
+     * Gets the number of puzzles ready for a level.
+     *
+     * @param level The difficulty level.
+     * @return The number of pre-generated puzzles.
+     */
+    public int available(SudokuLevel level) {
+        return puzzles.get(level).size();
+    }
+
+    /**
+     * Gets the number of puzzles taken from the pool.
+     *
+     * @return The number of takes served by a pre-generated puzzle.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the number of takes that found the pool empty, and got a transformed or a newly generated puzzle.
+     *
+     * @return The number of takes that found the pool empty.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Gets the share of takes served by a pre-generated puzzle.
+     *
+     * @return The hit rate between 0 and 1, or 0 if nothing was taken yet.
+     */
+    public double getHitRate() {
+        long hits = getHits();
+        long total = hits + getMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Stops the background generation. Puzzles can still be taken, they are then transforms of
+     * the last ones generated.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Starts filling a level up to its capacity unless it is already being filled.
+     */
+    private void refill(SudokuLevel level) {
+        AtomicBoolean running = refilling.get(level);
+        if (executor.isShutdown() || !running.compareAndSet(false, true)) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                BlockingQueue<int[][][]> queue = puzzles.get(level);
+                while (queue.remainingCapacity() > 0 && !Thread.currentThread().isInterrupted()) {
+                    int[][][] puzzle = SudokuUtilities.generateSudokuMatrix(level);
+                    if (lastGenerated.get(level).getAndSet(puzzle) == null) {
+                        ready.countDown();
+                    }
+                    queue.offer(puzzle);
+                }
+            } finally {
+                running.set(false);
+            }
+            // a take between the last offer and the reset above found the refill still running
+            if (puzzles.get(level).size() <= lowWaterMark) {
+                refill(level);
+            }
+        });
+    }
+
+    /**
+     * Applies a transform to a puzzle and its solution.
+     */
+    private static int[][][] transform(int[][][] puzzle, SudokuTransform transform) {
+        int size = SudokuUtilities.GRID_SIZE;
+        int[][][] result = new int[size][size][2];
+        for (int index = 0; index < Board.CELL_COUNT; index++) {
+            int source = transform.sourceIndex(index);
+            int[] cell = puzzle[Board.row(source)][Board.col(source)];
+            result[Board.row(index)][Board.col(index)][0] = transform.mapDigit(cell[0]);
+            result[Board.row(index)][Board.col(index)][1] = transform.mapDigit(cell[1]);
+        }
+        return result;
+    }
+
+    /**
+     * Returns a string representation of the pool.
+     *
+     * @return A string with the hit and miss counts and the puzzles ready per level.
+     */
+    @Override
+    public String toString() {
+        StringBuilder info = new StringBuilder();
+        info.append("hits: ").append(getHits()).append(", misses: ").append(getMisses());
+        for (SudokuLevel level : SudokuLevel.values()) {
+            info.append(", ").append(level).append(": ").append(available(level));
+        }
+        return info.toString();
+    }
+}
@@ -0,0 +1,342 @@
+package se.kth.alialaa.labb4.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static se.kth.alialaa.labb4.model.SudokuUtilities.*;
+
+/**
+ * Computes the canonical form of a grid: the lexicographically smallest 81-digit string among all
+ * grids reachable by a {@link SudokuTransform}, with empty cells as zero and the digits relabeled
+ * in order of first appearance. Two grids have the same canonical form if and only if one is a
+ * symmetry of the other.
+ * <p>
+ * The grid is built row by row. Every partial choice (transposition, column order, source rows so
+ * far, digit labels so far) that gives the smallest row at one depth is kept, all others are
+ * dropped, so only the ties are carried to the next row. The column order of the first row is
+ * chosen stack by stack, cutting every prefix that is already too large. Of the tied states, only
+ * one is kept for every remainder: the rows not placed yet, relabeled and in the column order of
+ * the state, grouped by band and sorted. States with the same remainder build the same rows from
+ * then on, so grids that tie in many ways, like symmetric grids or grids with almost no clues,
+ * collapse to a few states. A typical puzzle takes a few hundred microseconds. The class is
+ * stateless and thread safe.
+ */
+public final class SudokuCanonicalizer {
+    private static final int COMPARED_TIES = 16;   // tied states kept before their remainders are compared
+    private static final int[][] ORDERS = {{0, 1, 2}, {0, 2, 1}, {1, 0, 2}, {1, 2, 0}, {2, 0, 1}, {2, 1, 0}};
+
+    private SudokuCanonicalizer() {
+    }
+
+    /**
+     * Finds a transform that takes a grid to its canonical form.
+     *
+     * @param grid The 81 digits of the grid in row order, zero for an empty cell. Not modified.
+     * @return A transform whose {@link SudokuTransform#apply(int[])} gives the canonical form.
+     * @throws IllegalArgumentException If the grid does not have 81 digits between 0 and 9.
+     */
+    public static SudokuTransform canonicalTransform(int[] grid) {
+        if (grid.length != Board.CELL_COUNT) {
+            throw new IllegalArgumentException("grid length " + grid.length);
+        }
+        for (int digit : grid) {
+            if (digit < 0 || digit > 9) {
+                throw new IllegalArgumentException("digit " + digit);
+            }
+        }
+        return new Search(grid).run();
+    }
+
+    /**
+     * Computes the canonical form of a grid.
+     *
+     * @param grid The 81 digits of the grid in row order, zero for an empty cell. Not modified.
+     * @return The 81 digits of the canonical form.
+     * @throws IllegalArgumentException If the grid does not have 81 digits between 0 and 9.
+     */
+    public static int[] canonicalize(int[] grid) {
+        return canonicalTransform(grid).apply(grid);
+    }
+
+    /**
+     * Computes the canonical form of a grid written as a string.
+     *
+     * @param stringRepresentation A string of 81 characters, 0-9, '0' representing an empty cell.
+     * @return The canonical form as a string of 81 characters.
+     * @throws IllegalArgumentException If the string is not 81 characters 0-9.
+     */
+    public static String canonicalString(String stringRepresentation) {
+        return convertIntArrayToString(canonicalize(convertStringToIntArray(stringRepresentation)));
+    }
+
+    /**
+     * One canonicalization: the lines of the grid, the best row at the current depth and the
+     * states giving it.
+     */
+    private static final class Search {
+        private final int[][] lines = new int[2 * GRID_SIZE][GRID_SIZE];  // the rows, then the columns as rows
+        private final int[] best = new int[GRID_SIZE];
+        private final int[] row = new int[GRID_SIZE];
+        private final int[][] scratchLabels = new int[SECTIONS_PER_ROW + 1][GRID_SIZE + 1];   // per stack placed
+        private final int[] colMap = new int[GRID_SIZE];
+        private List<State> states = new ArrayList<>();
+        private final Set<String> remainders = new HashSet<>();    // of the states kept at the current depth
+        private final char[] scratchRemainder = new char[Board.CELL_COUNT + 1];
+        private boolean first = true;
+
+        Search(int[] grid) {
+            for (int index = 0; index < Board.CELL_COUNT; index++) {
+                lines[Board.row(index)][Board.col(index)] = grid[index];
+                lines[GRID_SIZE + Board.col(index)][Board.row(index)] = grid[index];
+            }
+        }
+
+        SudokuTransform run() {
+            for (int line = 0; line < lines.length; line++) {
+                firstRow(line, 0, 0, 1);
+            }
+            for (int depth = 1; depth < GRID_SIZE; depth++) {
+                List<State> previous = states;
+                states = new ArrayList<>();
+                remainders.clear();
+                first = true;
+                for (State state : previous) {
+                    int offset = state.transpose ? GRID_SIZE : 0;
+                    for (int source = 0; source < GRID_SIZE; source++) {
+                        if (state.canTake(source, depth)) {
+                            int nextLabel = relabel(lines[offset + source], state.colMap, state.labels, state.nextLabel);
+                            if (nextLabel >= 0) {
+                                keep();
+                                add(state.child(source, depth, scratchLabels[0], nextLabel), depth + 1);
+                            }
+                        }
+                    }
+                }
+            }
+            return states.get(0).toTransform();
+        }
+
+        /**
+         * Chooses the column order stack by stack for a first row taken from a line, cutting every
+         * branch whose prefix is already greater than the best first row.
+         */
+        private void firstRow(int line, int stack, int usedStacks, int nextLabel) {
+            if (stack == SECTIONS_PER_ROW) {
+                if (first || Arrays.compare(row, best) <= 0) {
+                    keep();
+                    add(new State(line >= GRID_SIZE, colMap.clone(), line % GRID_SIZE,
+                            scratchLabels[stack].clone(), nextLabel), 1);
+                }
+                return;
+            }
+            int from = stack * SECTION_SIZE;
+            int to = from + SECTION_SIZE;
+            for (int source = 0; source < SECTIONS_PER_ROW; source++) {
+                if ((usedStacks & 1 << source) != 0) {
+                    continue;
+                }
+                for (int[] order : ORDERS) {
+                    int[] extended = scratchLabels[stack + 1];
+                    System.arraycopy(scratchLabels[stack], 0, extended, 0, GRID_SIZE + 1);
+                    int next = nextLabel;
+                    for (int i = 0; i < SECTION_SIZE; i++) {
+                        int col = source * SECTION_SIZE + order[i];
+                        int digit = lines[line][col];
+                        if (digit != 0 && extended[digit] == 0) {
+                            extended[digit] = next++;
+                        }
+                        colMap[from + i] = col;
+                        row[from + i] = extended[digit];
+                    }
+                    if (first || Arrays.compare(row, 0, to, best, 0, to) <= 0) {
+                        firstRow(line, stack + 1, usedStacks | 1 << source, next);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Relabels a line in the order of a column map into row, extending a copy of the labels
+         * into scratchLabels[0]. Stops as soon as the row is known to be greater than the best row.
+         *
+         * @return The next free label after the row, or -1 if the row is greater than the best row.
+         */
+        private int relabel(int[] line, int[] colMap, int[] labels, int nextLabel) {
+            int[] extended = scratchLabels[0];
+            System.arraycopy(labels, 0, extended, 0, GRID_SIZE + 1);
+            boolean tied = !first;
+            for (int col = 0; col < GRID_SIZE; col++) {
+                int digit = line[colMap[col]];
+                if (digit != 0 && extended[digit] == 0) {
+                    extended[digit] = nextLabel++;
+                }
+                int value = extended[digit];
+                if (tied && value != best[col]) {
+                    if (value > best[col]) {
+                        return -1;
+                    }
+                    tied = false;
+                }
+                row[col] = value;
+            }
+            return nextLabel;
+        }
+
+        /**
+         * Keeps a state unless a state with the same remainder is kept already. Remainders are
+         * only compared once more than a few states tie, as computing them costs more than
+         * carrying a few extra states.
+         *
+         * @param depth The number of rows the state has placed.
+         */
+        private void add(State state, int depth) {
+            if (states.size() < COMPARED_TIES) {
+                states.add(state);
+                return;
+            }
+            if (remainders.isEmpty()) {
+                for (State kept : states) {
+                    remainders.add(remainder(kept, depth));
+                }
+            }
+            if (remainders.add(remainder(state, depth))) {
+                states.add(state);
+            }
+        }
+
+        /**
+         * Describes the rows a state has not placed yet, as they would appear in the canonical grid:
+         * labeled digits by their label and the others by 9 plus the digit. The rest of the band
+         * being placed comes first, then the bands not placed yet, each with its rows sorted.
+         */
+        private String remainder(State state, int depth) {
+            int offset = state.transpose ? GRID_SIZE : 0;
+            char[] remainder = scratchRemainder;
+            remainder[0] = (char) state.nextLabel;
+            int length = 1;
+            if (depth % SECTION_SIZE != 0) {
+                int band = state.rowMap[depth - 1] / SECTION_SIZE;
+                int start = length;
+                for (int source = band * SECTION_SIZE; source < (band + 1) * SECTION_SIZE; source++) {
+                    if (state.canTake(source, depth)) {
+                        length = remainderRow(state, lines[offset + source], remainder, length);
+                    }
+                }
+                sortBlocks(remainder, start, length, GRID_SIZE);
+            }
+            int start = length;
+            for (int band = 0; band < SECTIONS_PER_ROW; band++) {
+                if ((state.usedBands & 1 << band) == 0) {
+                    int bandStart = length;
+                    for (int source = band * SECTION_SIZE; source < (band + 1) * SECTION_SIZE; source++) {
+                        length = remainderRow(state, lines[offset + source], remainder, length);
+                    }
+                    sortBlocks(remainder, bandStart, length, GRID_SIZE);
+                }
+            }
+            sortBlocks(remainder, start, length, SECTION_SIZE * GRID_SIZE);
+            return new String(remainder, 0, length);
+        }
+
+        private static int remainderRow(State state, int[] line, char[] remainder, int length) {
+            for (int col = 0; col < GRID_SIZE; col++) {
+                int digit = line[state.colMap[col]];
+                remainder[length++] = (char) (digit == 0 ? 0
+                        : state.labels[digit] != 0 ? state.labels[digit] : GRID_SIZE + digit);
+            }
+            return length;
+        }
+
+        /**
+         * Sorts the blocks of a given size between two indexes, at most three of them.
+         */
+        private static void sortBlocks(char[] chars, int from, int to, int size) {
+            for (int i = from + size; i < to; i += size) {
+                for (int j = i; j > from && Arrays.compare(chars, j - size, j, chars, j, j + size) > 0; j -= size) {
+                    for (int k = 0; k < size; k++) {
+                        char tmp = chars[j - size + k];
+                        chars[j - size + k] = chars[j + k];
+                        chars[j + k] = tmp;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Makes the row the best row, dropping the states kept so far, unless it ties with the best row.
+         */
+        private void keep() {
+            if (first || Arrays.compare(row, best) < 0) {
+                states.clear();
+                remainders.clear();
+                System.arraycopy(row, 0, best, 0, GRID_SIZE);
+                first = false;
+            }
+        }
+    }
+
+    /**
+     * A partial canonical grid: the first rows chosen so far with their digit labels.
+     */
+    private static final class State {
+        private final boolean transpose;
+        private final int[] colMap;
+        private final int[] rowMap;     // the source row of every row chosen so far
+        private final int[] labels;     // [old digit] the new digit, zero while not labeled yet
+        private final int nextLabel;
+        private final int usedBands;    // bit b set when source band b is placed
+
+        State(boolean transpose, int[] colMap, int firstRow, int[] labels, int nextLabel) {
+            this(transpose, colMap, new int[GRID_SIZE], labels, nextLabel, 1 << firstRow / SECTION_SIZE);
+            rowMap[0] = firstRow;
+        }
+
+        private State(boolean transpose, int[] colMap, int[] rowMap, int[] labels, int nextLabel, int usedBands) {
+            this.transpose = transpose;
+            this.colMap = colMap;
+            this.rowMap = rowMap;
+            this.labels = labels;
+            this.nextLabel = nextLabel;
+            this.usedBands = usedBands;
+        }
+
+        /**
+         * Checks if a source row can be placed at a depth: the first row of a band may come from
+         * any unused band, the other rows only from the rest of the band being placed.
+         */
+        boolean canTake(int source, int depth) {
+            int band = source / SECTION_SIZE;
+            if (depth % SECTION_SIZE == 0) {
+                return (usedBands & 1 << band) == 0;
+            }
+            if (band != rowMap[depth - 1] / SECTION_SIZE) {
+                return false;
+            }
+            for (int i = depth - depth % SECTION_SIZE; i < depth; i++) {
+                if (rowMap[i] == source) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        State child(int source, int depth, int[] labels, int nextLabel) {
+            int[] rowMap = this.rowMap.clone();
+            rowMap[depth] = source;
+            return new State(transpose, colMap, rowMap, labels.clone(), nextLabel,
+                    usedBands | 1 << source / SECTION_SIZE);
+        }
+
+        SudokuTransform toTransform() {
+            int[] digitMap = new int[GRID_SIZE];
+            int next = nextLabel;
+            for (int digit = 1; digit <= GRID_SIZE; digit++) {
+                digitMap[digit - 1] = labels[digit] != 0 ? labels[digit] : next++;
+            }
+            return new SudokuTransform(digitMap, rowMap, colMap, transpose);
+        }
+    }
+}
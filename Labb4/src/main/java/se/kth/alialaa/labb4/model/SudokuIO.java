@@ -1,51 +1,345 @@
 package se.kth.alialaa.labb4.model;
 
-import javafx.stage.FileChooser;
+import se.kth.alialaa.labb4.model.solver.BitmaskSolver;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.zip.CRC32;
 
 /**
  * The SudokuIO class provides methods for saving and loading Sudoku game data.
- * It uses object serialization to save and load the state of the Sudoku game.
+ * A game is saved in a compact binary format of {@link #SAVE_SIZE} bytes, big-endian:
+ * <ul>
+ * <li>the magic number "SDKU", the format version and the level, one byte each after the magic,</li>
+ * <li>the state of the 81 cells as 4-bit nibbles, two cells per byte: 0 for an empty cell,
+ * 1-9 for a guess and 10 for a given cell,</li>
+ * <li>the solution of the 81 cells as 4-bit nibbles,</li>
+ * <li>the number of filled cells and the number of wrong guesses, checked when loading,</li>
+ * <li>a CRC32 checksum of everything before it.</li>
+ * </ul>
+ * Files written with Java serialization by earlier versions of the game are still loaded. Their
+ * solutions are not trusted, they are solved again from the given cells.
  */
-
-import java.io.*;
-
 public class SudokuIO {
+    public static final int MAGIC = 0x53444B55;     // "SDKU"
+    public static final int VERSION = 1;
+    public static final int SAVE_SIZE = 94;
+
+    private static final int GIVEN = 10;
+    private static final int CHECKSUM_OFFSET = SAVE_SIZE - 4;
+    private static final short SERIALIZATION_MAGIC = (short) 0xACED;
+    private static final int MAX_LEGACY_SIZE = 64 * 1024;
 
     private SudokuIO() {
 
     }
 
     /**
-     * Saves the Sudoku game state to a specified file using object serialization.
+     * Saves the Sudoku game state to a specified file.
      *
      * @param file  The File object representing the file where the game state will be saved.
      * @param model The Cells object representing the Sudoku game state to be saved.
-     * @throws RuntimeException If an IOException occurs during the saving process.
+     * @throws IOException If an I/O error occurs during the saving process.
      */
     public static void SaveGame(File file, Cells model) throws IOException {
         if (file != null) {
-            ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(file));
-            out.writeObject(model);
-            out.close();
+            SaveGame(file, encode(model));
+        }
+    }
+
+    /**
+     * Saves an encoded game to a specified file, see {@link #writeAtomically(Path, ByteBuffer)}.
+     * Safe to call from any thread, the game is not touched after it is encoded.
+     *
+     * @param file The File object representing the file where the game will be saved.
+     * @param save The game encoded by {@link #encode(Cells)}. Read from its position, which is not moved.
+     * @throws IOException If an I/O error occurs during the saving process.
+     */
+    public static void SaveGame(File file, ByteBuffer save) throws IOException {
+        if (file != null) {
+            writeAtomically(file.toPath(), save);
         }
     }
 
+    /**
+     * Writes a file through a temporary file in the same directory which then replaces it, so a
+     * failed write never leaves a half written file.
+     *
+     * @param path The file to write.
+     * @param data The bytes to write, from the buffer's position, which is not moved.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static void writeAtomically(Path path, ByteBuffer data) throws IOException {
+        Path target = path.toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = data.duplicate();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
 
     /**
-     * Loads the Sudoku game state from a specified file using object deserialization.
+     * Loads the Sudoku game state from a specified file, in the binary format or the old serialized format.
+     * Safe to call from any thread, the game returned is new.
      *
      * @param file The File object representing the file from which the game state will be loaded.
      * @return The Cells object representing the loaded Sudoku game state, or null if the file is null.
-     * @throws RuntimeException If an IOException or ClassNotFoundException occurs during the loading process.
+     * @throws IOException            If an I/O error occurs or the file is not a valid saved game.
+     * @throws ClassNotFoundException If an old serialized file refers to an unknown class.
      */
     public static Cells LoadGame(File file) throws IOException, ClassNotFoundException {
         if (file != null) {
-            Cells model;
-                ObjectInputStream in = new ObjectInputStream(new FileInputStream(file));
-                model = (Cells) in.readObject();
-                in.close();
-                return model;
+            ByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                long size = channel.size();
+                if (size > MAX_LEGACY_SIZE) {
+                    throw new IOException("not a saved game: " + size + " bytes");
+                }
+                buffer = ByteBuffer.allocate((int) size);
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer) < 0) {
+                        break;
+                    }
+                }
+                buffer.flip();
+            }
+            if (buffer.remaining() >= 2 && buffer.getShort(0) == SERIALIZATION_MAGIC) {
+                return LegacyFormat.read(buffer);
+            }
+            return decode(buffer);
         }
         return null;   // Return null if the file is null
     }
+
+    /**
+     * Encodes a game in the binary format.
+     *
+     * @param model The game to encode.
+     * @return A buffer of {@link #SAVE_SIZE} bytes, ready to be read.
+     */
+    public static ByteBuffer encode(Cells model) {
+        Board board = model.getBoard();
+        ByteBuffer buffer = ByteBuffer.allocate(SAVE_SIZE);
+        buffer.putInt(MAGIC).put((byte) VERSION).put((byte) model.getLevel().ordinal());
+        for (int index = 0; index < Board.CELL_COUNT; index += 2) {
+            buffer.put(pack(state(board, index), index + 1 < Board.CELL_COUNT ? state(board, index + 1) : 0));
+        }
+        for (int index = 0; index < Board.CELL_COUNT; index += 2) {
+            buffer.put(pack(board.solution(index), index + 1 < Board.CELL_COUNT ? board.solution(index + 1) : 0));
+        }
+        buffer.put((byte) board.filledCount()).put((byte) board.wrongCount());
+        buffer.putInt(checksum(buffer, CHECKSUM_OFFSET));
+        return buffer.flip();
+    }
+
+    /**
+     * Decodes a game in the binary format.
+     *
+     * @param buffer The buffer to read from its position. Its position is moved past the game.
+     * @return The decoded game.
+     * @throws IOException If the buffer does not hold a valid game of a known version.
+     */
+    public static Cells decode(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < SAVE_SIZE) {
+            throw new IOException("not a saved game: " + buffer.remaining() + " bytes");
+        }
+        ByteBuffer save = buffer.slice(buffer.position(), SAVE_SIZE);
+        buffer.position(buffer.position() + SAVE_SIZE);
+        if (save.getInt() != MAGIC) {
+            throw new IOException("not a saved game");
+        }
+        int version = save.get();
+        if (version != VERSION) {
+            throw new IOException("unknown save version " + version);
+        }
+        if (save.getInt(CHECKSUM_OFFSET) != checksum(save, CHECKSUM_OFFSET)) {
+            throw new IOException("saved game is corrupt, bad checksum");
+        }
+        int level = save.get();
+        if (level < 0 || level >= SudokuUtilities.SudokuLevel.values().length) {
+            throw new IOException("unknown level " + level);
+        }
+
+        int[] states = unpack(save);
+        int[] solution = unpack(save);
+        int[] givens = new int[Board.CELL_COUNT];
+        for (int index = 0; index < Board.CELL_COUNT; index++) {
+            if (solution[index] < 1 || solution[index] > 9 || states[index] > GIVEN) {
+                throw new IOException("bad cell " + index);
+            }
+            givens[index] = states[index] == GIVEN ? solution[index] : 0;
+        }
+        Board board = new Board();
+        board.load(SudokuUtilities.toSudokuMatrix(givens, solution));
+        for (int index = 0; index < Board.CELL_COUNT; index++) {
+            if (states[index] != GIVEN) {
+                board.setValue(index, states[index]);
+            }
+        }
+        if (save.get() != board.filledCount() || save.get() != board.wrongCount()) {
+            throw new IOException("saved game is corrupt, counters do not match the cells");
+        }
+        return new Cells(SudokuUtilities.SudokuLevel.values()[level], board);
+    }
+
+    private static int state(Board board, int index) {
+        return board.isGiven(index) ? GIVEN : board.value(index);
+    }
+
+    private static byte pack(int first, int second) {
+        return (byte) (first << 4 | second);
+    }
+
+    private static int[] unpack(ByteBuffer buffer) {
+        int[] values = new int[Board.CELL_COUNT];
+        for (int index = 0; index < Board.CELL_COUNT; index += 2) {
+            int packed = buffer.get() & 0xFF;
+            values[index] = packed >> 4;
+            if (index + 1 < Board.CELL_COUNT) {
+                values[index + 1] = packed & 0xF;
+            }
+        }
+        return values;
+    }
+
+    private static int checksum(ByteBuffer buffer, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(0, length));
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Reads the object graph written by earlier versions with Java serialization. The old classes
+     * Cells and Cell are mapped to stand-ins with the same fields, and a filter rejects every
+     * other class, so an untrusted file cannot instantiate anything else.
+     */
+    private static class LegacyFormat extends ObjectInputStream {
+        private static final String OLD_CELLS = "se.kth.alialaa.labb4.model.Cells";
+        private static final String OLD_CELL = "se.kth.alialaa.labb4.model.Cell";
+        private static final Set<Class<?>> ALLOWED = Set.of(OldCells.class, OldCell.class, OldCell[].class,
+                OldCell[][].class, Enum.class, CellState.class, SudokuUtilities.SudokuLevel.class);
+
+        private LegacyFormat(InputStream in) throws IOException {
+            super(in);
+            setObjectInputFilter(info -> {
+                if (info.depth() > 8 || info.references() > 1000) {
+                    return ObjectInputFilter.Status.REJECTED;
+                }
+                if (info.serialClass() == null) {
+                    return ObjectInputFilter.Status.UNDECIDED;
+                }
+                return ALLOWED.contains(info.serialClass())
+                        ? ObjectInputFilter.Status.ALLOWED : ObjectInputFilter.Status.REJECTED;
+            });
+        }
+
+        static Cells read(ByteBuffer buffer) throws IOException, ClassNotFoundException {
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            try (LegacyFormat in = new LegacyFormat(new ByteArrayInputStream(bytes))) {
+                if (!(in.readObject() instanceof OldCells old) || old.cells == null || old.level == null) {
+                    throw new InvalidObjectException("not a saved game");
+                }
+                return old.migrate();
+            }
+        }
+
+        @Override
+        protected ObjectStreamClass readClassDescriptor() throws IOException, ClassNotFoundException {
+            ObjectStreamClass descriptor = super.readClassDescriptor();
+            switch (descriptor.getName()) {
+                case OLD_CELLS: return ObjectStreamClass.lookup(OldCells.class);
+                case OLD_CELL: return ObjectStreamClass.lookup(OldCell.class);
+                case "[L" + OLD_CELL + ";": return ObjectStreamClass.lookup(OldCell[].class);
+                case "[[L" + OLD_CELL + ";": return ObjectStreamClass.lookup(OldCell[][].class);
+                default: return descriptor;
+            }
+        }
+    }
+
+    /**
+     * The fields of the old serialized Cells class.
+     */
+    private static class OldCells implements Serializable {
+        private static final long serialVersionUID = 5305897643650089128L;     // computed for the old class
+
+        private OldCell[][] cells;
+        private int leftToGuess;
+        private SudokuUtilities.SudokuLevel level;
+
+        /**
+         * Converts the old game. Old versions could scramble the stored solution when they
+         * shuffled the digits of a new game, so the solution is computed from the given cells.
+         *
+         * @return The game.
+         * @throws InvalidObjectException If the grid is malformed or the given cells do not have a unique solution.
+         */
+        Cells migrate() throws IOException {
+            int[] givens = new int[Board.CELL_COUNT];
+            int[] guesses = new int[Board.CELL_COUNT];
+            if (cells.length != SudokuUtilities.GRID_SIZE) {
+                throw new InvalidObjectException("grid of " + cells.length + " rows");
+            }
+            for (int row = 0; row < SudokuUtilities.GRID_SIZE; row++) {
+                if (cells[row] == null || cells[row].length != SudokuUtilities.GRID_SIZE) {
+                    throw new InvalidObjectException("bad row " + row);
+                }
+                for (int col = 0; col < SudokuUtilities.GRID_SIZE; col++) {
+                    OldCell cell = cells[row][col];
+                    int index = Board.index(row, col);
+                    if (cell == null || cell.theGuess < 0 || cell.theGuess > 9) {
+                        throw new InvalidObjectException("bad cell " + index);
+                    }
+                    if (cell.cellState == CellState.KNOWN && cell.theGuess != 0) {
+                        givens[index] = cell.theGuess;
+                    } else {
+                        guesses[index] = cell.theGuess;
+                    }
+                }
+            }
+            BitmaskSolver solver = new BitmaskSolver();
+            if (solver.countSolutions(givens, 2) != 1) {
+                throw new InvalidObjectException("the given cells do not have a unique solution");
+            }
+            int[] solution = solver.solve(givens);
+            Board board = new Board();
+            board.load(SudokuUtilities.toSudokuMatrix(givens, solution));
+            for (int index = 0; index < Board.CELL_COUNT; index++) {
+                if (guesses[index] != 0) {
+                    board.setValue(index, guesses[index]);
+                }
+            }
+            return new Cells(level, board);
+        }
+    }
+
+    /**
+     * The fields of the old serialized Cell class.
+     */
+    private static class OldCell implements Serializable {
+        private static final long serialVersionUID = 5433762921130423273L;     // computed for the old class
+
+        private int toGuess;
+        private CellState cellState;
+        private int theGuess;
+    }
 }
@@ -0,0 +1,169 @@
+package se.kth.alialaa.labb4.model;
+
+import java.util.Random;
+
+import static se.kth.alialaa.labb4.model.SudokuUtilities.*;
+
+/**
+ * A validity preserving symmetry of the Sudoku grid: a relabeling of the digits, a permutation
+ * of the bands and of the rows inside every band, a permutation of the stacks and of the columns
+ * inside every stack, and an optional transposition. Rotations and reflections are special cases.
+ * Applying a transform to a puzzle and its solution gives a new puzzle with the same difficulty
+ * and a unique solution, without solving anything.
+ */
+public final class SudokuTransform {
+    private static final int[] IDENTITY = {0, 1, 2, 3, 4, 5, 6, 7, 8};
+    private static final int[] REVERSED = {8, 7, 6, 5, 4, 3, 2, 1, 0};
+
+    private final int[] digitMap;       // [old digit] the new digit, zero maps to zero
+    private final int[] sourceIndex;    // [new cell index] the cell index it is taken from
+
+    /**
+     * Constructs a new transform. A cell (row, col) of the result takes its value from the cell
+     * (rowMap[row], colMap[col]) of the original, or (colMap[col], rowMap[row]) when transposed,
+     * with the digit relabeled through digitMap.
+     *
+     * @param digitMap  The new digit for every digit 1-9, at index digit - 1.
+     * @param rowMap    The source row of every row, moving whole bands and rows only within a band.
+     * @param colMap    The source column of every column, moving whole stacks and columns only within a stack.
+     * @param transpose True to swap rows and columns.
+     * @throws IllegalArgumentException If a map is not a valid permutation.
+     */
+    public SudokuTransform(int[] digitMap, int[] rowMap, int[] colMap, boolean transpose) {
+        checkPermutation(digitMap, 1, false);
+        checkPermutation(rowMap, 0, true);
+        checkPermutation(colMap, 0, true);
+        this.digitMap = new int[GRID_SIZE + 1];
+        System.arraycopy(digitMap, 0, this.digitMap, 1, GRID_SIZE);
+        this.sourceIndex = new int[Board.CELL_COUNT];
+        for (int row = 0; row < GRID_SIZE; row++) {
+            for (int col = 0; col < GRID_SIZE; col++) {
+                sourceIndex[Board.index(row, col)] = transpose
+                        ? Board.index(colMap[col], rowMap[row])
+                        : Board.index(rowMap[row], colMap[col]);
+            }
+        }
+    }
+
+    /**
+     * Gets the transform that changes nothing.
+     *
+     * @return The identity transform.
+     */
+    public static SudokuTransform identity() {
+        return new SudokuTransform(digits(), IDENTITY, IDENTITY, false);
+    }
+
+    /**
+     * Gets the transform that mirrors the grid in its main diagonal.
+     *
+     * @return The transposition.
+     */
+    public static SudokuTransform transposition() {
+        return new SudokuTransform(digits(), IDENTITY, IDENTITY, true);
+    }
+
+    /**
+     * Gets a clockwise rotation of the grid.
+     *
+     * @param quarterTurns The number of quarter turns, any integer.
+     * @return The rotation.
+     */
+    public static SudokuTransform rotation(int quarterTurns) {
+        switch (Math.floorMod(quarterTurns, 4)) {
+            case 1: return new SudokuTransform(digits(), IDENTITY, REVERSED, true);
+            case 2: return new SudokuTransform(digits(), REVERSED, REVERSED, false);
+            case 3: return new SudokuTransform(digits(), REVERSED, IDENTITY, true);
+            default: return identity();
+        }
+    }
+
+    /**
+     * Gets a random transform, chosen among about 1.2 * 10^12 (9! * 6^8 * 2) combinations.
+     *
+     * @param random The source of randomness.
+     * @return A random transform.
+     */
+    public static SudokuTransform random(Random random) {
+        int[] digitMap = digits();
+        shuffle(digitMap, 0, GRID_SIZE, random);
+        return new SudokuTransform(digitMap, randomLineMap(random), randomLineMap(random), random.nextBoolean());
+    }
+
+    /**
+     * Gets the new digit of a digit.
+     *
+     * @param digit The digit, zero for an empty cell.
+     * @return The relabeled digit, zero for zero.
+     */
+    public int mapDigit(int digit) {
+        return digitMap[digit];
+    }
+
+    /**
+     * Gets the cell of the original grid that a cell of the transformed grid is taken from.
+     *
+     * @param index The index of the cell in the transformed grid.
+     * @return The index of the cell in the original grid.
+     */
+    public int sourceIndex(int index) {
+        return sourceIndex[index];
+    }
+
+    /**
+     * Applies the transform to a grid.
+     *
+     * @param grid The 81 digits of the grid in row order, zero for an empty cell. Not modified.
+     * @return The 81 digits of the transformed grid.
+     */
+    public int[] apply(int[] grid) {
+        int[] result = new int[Board.CELL_COUNT];
+        for (int index = 0; index < Board.CELL_COUNT; index++) {
+            result[index] = digitMap[grid[sourceIndex[index]]];
+        }
+        return result;
+    }
+
+    private static int[] digits() {
+        return new int[]{1, 2, 3, 4, 5, 6, 7, 8, 9};
+    }
+
+    private static int[] randomLineMap(Random random) {
+        int[] bands = {0, 1, 2};
+        shuffle(bands, 0, SECTIONS_PER_ROW, random);
+        int[] lines = new int[GRID_SIZE];
+        for (int band = 0; band < SECTIONS_PER_ROW; band++) {
+            for (int i = 0; i < SECTION_SIZE; i++) {
+                lines[band * SECTION_SIZE + i] = bands[band] * SECTION_SIZE + i;
+            }
+            shuffle(lines, band * SECTION_SIZE, SECTION_SIZE, random);
+        }
+        return lines;
+    }
+
+    private static void shuffle(int[] values, int from, int length, Random random) {
+        for (int i = length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = values[from + i];
+            values[from + i] = values[from + j];
+            values[from + j] = tmp;
+        }
+    }
+
+    private static void checkPermutation(int[] map, int first, boolean keepBands) {
+        if (map.length != GRID_SIZE) {
+            throw new IllegalArgumentException("map length " + map.length);
+        }
+        int seen = 0;
+        for (int i = 0; i < GRID_SIZE; i++) {
+            int value = map[i] - first;
+            if (value < 0 || value >= GRID_SIZE || (seen & 1 << value) != 0) {
+                throw new IllegalArgumentException("not a permutation at " + i);
+            }
+            if (keepBands && value / SECTION_SIZE != (map[i - i % SECTION_SIZE] - first) / SECTION_SIZE) {
+                throw new IllegalArgumentException("line " + i + " leaves its band");
+            }
+            seen |= 1 << value;
+        }
+    }
+}
@@ -1,5 +1,9 @@
 package se.kth.alialaa.labb4.model;
 
+import se.kth.alialaa.labb4.model.solver.SudokuGenerator;
+
+import java.util.concurrent.ThreadLocalRandom;
+
 public class SudokuUtilities {
 
     public enum SudokuLevel {EASY, MEDIUM, HARD}
@@ -9,132 +13,150 @@ public class SudokuUtilities {
     public static final int SECTION_SIZE = 3;
     public static final int CELL_SIZE = 60;
 
+    private static volatile PuzzleLibrary library;
+
     /**
      * Create a 3-dimensional matrix with initial values and solution in Sudoku.
+     * Every call picks a random puzzle of the level from the puzzle library, if one is set and
+     * has puzzles of the level, and otherwise generates a new random puzzle with a unique solution.
      *
      * @param level The level, i.e. the difficulty, of the initial standing.
      * @return A 3-dimensional int matrix.
      * [row][col][0] represents the initial values, zero representing an empty cell.
      * [row][col][1] represents the solution.
-     * @throws IllegalArgumentException if the length of stringRepresentation is not 2*81 characters and
-     *                                  for characters other than '0'-'9'.
      */
     public static int[][][] generateSudokuMatrix(SudokuLevel level) {
-        String representationString;
-        switch (level) {
-            case EASY: representationString = easy; break;
-            case MEDIUM: representationString = medium; break;
-            case HARD: representationString = hard; break;
-            default: representationString = medium;
+        PuzzleLibrary library = SudokuUtilities.library;
+        if (library != null && library.size(level) > 0) {
+            return library.random(level, ThreadLocalRandom.current());
+        }
+        return new SudokuGenerator().generate(level);
+    }
+
+    /**
+     * Sets the puzzle library that new puzzles are drawn from.
+     *
+     * @param library The library, or null to generate every puzzle.
+     */
+    public static void setPuzzleLibrary(PuzzleLibrary library) {
+        SudokuUtilities.library = library;
+    }
+
+    /**
+     * Gets the puzzle library that new puzzles are drawn from.
+     *
+     * @return The library, or null if every puzzle is generated.
+     */
+    public static PuzzleLibrary getPuzzleLibrary() {
+        return library;
+    }
+
+    /**
+     * Create a 3-dimensional matrix with initial values and solution in Sudoku from two grids.
+     *
+     * @param initialValues The 81 initial values in row order, zero representing an empty cell.
+     * @param solution      The 81 solution values in row order.
+     * @return A 3-dimensional int matrix.
+     * [row][col][0] represents the initial values, zero representing an empty cell.
+     * [row][col][1] represents the solution.
+     */
+    public static int[][][] toSudokuMatrix(int[] initialValues, int[] solution) {
+        int[][][] values = new int[GRID_SIZE][GRID_SIZE][2];
+        for (int row = 0; row < GRID_SIZE; row++) {
+            for (int col = 0; col < GRID_SIZE; col++) {
+                values[row][col][0] = initialValues[row * GRID_SIZE + col];
+                values[row][col][1] = solution[row * GRID_SIZE + col];
+            }
         }
-        return convertStringToIntMatrix(representationString);
+        return values;
     }
 
     /**
      * Create a 3-dimensional matrix with initial values and solution in Sudoku.
      *
      * @param stringRepresentation A string of 2*81 characters, 0-9. The first 81 characters represents
-     *                             the initial values, '0' representing an empty cell.
+     *                             the initial values, '0' or '.' representing an empty cell.
      *                             The following 81 characters represents the solution.
      * @return A 3-dimensional int matrix.
      * [row][col][0] represents the initial values, zero representing an empty cell.
      * [row][col][1] represents the solution.
      * @throws IllegalArgumentException if the length of stringRepresentation is not 2*81 characters and
-     *                                  for characters other than '0'-'9'.
+     *                                  for characters other than '0'-'9' and '.'.
      */
     /*package private*/
     static int[][][] convertStringToIntMatrix(String stringRepresentation) {
         if (stringRepresentation.length() != GRID_SIZE * GRID_SIZE * 2)
             throw new IllegalArgumentException("representation length " + stringRepresentation.length());
 
-        int[][][] values = new int[GRID_SIZE][GRID_SIZE][2];
-        char[] charRepresentation = stringRepresentation.toCharArray();
-
-        int charIndex = 0;
-        // initial values
-        for (int row = 0; row < GRID_SIZE; row++) {
-            for (int col = 0; col < GRID_SIZE; col++) {
-                values[row][col][0] =
-                        convertCharToSudokuInt(charRepresentation[charIndex++]);
-            }
-        }
+        int[] initialValues = new int[GRID_SIZE * GRID_SIZE];
+        int[] solution = new int[GRID_SIZE * GRID_SIZE];
+        convertCharsToIntArray(stringRepresentation, 0, initialValues);
+        convertCharsToIntArray(stringRepresentation, GRID_SIZE * GRID_SIZE, solution);
+        return toSudokuMatrix(initialValues, solution);
+    }
 
-        // solution values
-        for (int row = 0; row < GRID_SIZE; row++) {
-            for (int col = 0; col < GRID_SIZE; col++) {
-                values[row][col][1] =
-                        convertCharToSudokuInt(charRepresentation[charIndex++]);
-            }
-        }
+    /**
+     * Create a one-dimensional array with the cells of a Sudoku grid in row order.
+     *
+     * @param stringRepresentation A string of 81 characters, 0-9, '0' or '.' representing an empty cell.
+     * @return An int array of 81 values, zero representing an empty cell.
+     * @throws IllegalArgumentException if the length of stringRepresentation is not 81 characters and
+     *                                  for characters other than '0'-'9' and '.'.
+     */
+    public static int[] convertStringToIntArray(String stringRepresentation) {
+        if (stringRepresentation.length() != GRID_SIZE * GRID_SIZE)
+            throw new IllegalArgumentException("representation length " + stringRepresentation.length());
 
+        int[] values = new int[GRID_SIZE * GRID_SIZE];
+        convertCharsToIntArray(stringRepresentation, 0, values);
         return values;
     }
 
+    /**
+     * Converts the characters of a grid into an existing array, without creating any objects.
+     *
+     * @param chars  The characters, 0-9, '0' or '.' representing an empty cell.
+     * @param offset The index of the first character of the grid.
+     * @param values The array to fill, one value per character.
+     * @throws IllegalArgumentException for characters other than '0'-'9' and '.'.
+     */
+    /*package private*/
+    static void convertCharsToIntArray(CharSequence chars, int offset, int[] values) {
+        for (int i = 0; i < values.length; i++) {
+            values[i] = convertCharToSudokuInt(chars.charAt(offset + i));
+        }
+    }
+
+    /**
+     * Create a string representation of the cells of a Sudoku grid.
+     *
+     * @param values An int array of 81 values in row order, zero representing an empty cell.
+     * @return A string of 81 characters, 0-9, '0' representing an empty cell.
+     * @throws IllegalArgumentException if the length of values is not 81 and for values other than 0-9.
+     */
+    public static String convertIntArrayToString(int[] values) {
+        if (values.length != GRID_SIZE * GRID_SIZE)
+            throw new IllegalArgumentException("values length " + values.length);
+
+        char[] charRepresentation = new char[values.length];
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] < 0 || values[i] > 9) throw new IllegalArgumentException("value " + values[i]);
+            charRepresentation[i] = (char) ('0' + values[i]);
+        }
+        return new String(charRepresentation);
+    }
 
-    private static int convertCharToSudokuInt(char ch) {
-        if (ch < '0' || ch > '9') throw new IllegalArgumentException("character " + ch);
+    /**
+     * Converts the character of a cell, or an ASCII byte, to its value.
+     *
+     * @param ch The character, 0-9, '0' or '.' representing an empty cell.
+     * @return The value of the cell, zero for an empty cell.
+     * @throws IllegalArgumentException for characters other than '0'-'9' and '.'.
+     */
+    /*package private*/
+    static int convertCharToSudokuInt(int ch) {
+        if (ch == '.') return 0;
+        if (ch < '0' || ch > '9') throw new IllegalArgumentException("character " + (char) ch);
         return ch - '0';
     }
-
-    private static final String easy =
-            "000914070" +
-                    "010000054" +
-                    "040002000" +
-                    "007569001" +
-                    "401000500" +
-                    "300100000" +
-                    "039000408" +
-                    "650800030" +
-                    "000403260" + // solution values after this substring
-                    "583914672" +
-                    "712386954" +
-                    "946752183" +
-                    "827569341" +
-                    "461238597" +
-                    "395147826" +
-                    "239675418" +
-                    "654821739" +
-                    "178493265";
-
-
-    private static final String medium =
-            "300000010" +
-                    "000050906" +
-                    "050401200" +
-                    "030000080" +
-                    "002069400" +
-                    "000000002" +
-                    "900610000" +
-                    "200300058" +
-                    "100800090" +
-                    "324976815" +
-                    "718253946" +
-                    "659481273" +
-                    "536142789" +
-                    "872569431" +
-                    "491738562" +
-                    "985617324" +
-                    "267394158" +
-                    "143825697";
-
-
-    private static final String hard =
-            "030600000" +
-                    "000010070" +
-                    "080000000" +
-                    "000020000" +
-                    "340000800" +
-                    "500030094" +
-                    "000400000" +
-                    "150800200" +
-                    "700006050" +
-                    "931687542" +
-                    "465219378" +
-                    "287345916" +
-                    "876924135" +
-                    "349561827" +
-                    "512738694" +
-                    "693452781" +
-                    "154873269" +
-                    "728196453";
 }
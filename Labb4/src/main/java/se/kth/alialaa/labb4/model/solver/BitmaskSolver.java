@@ -0,0 +1,297 @@
+package se.kth.alialaa.labb4.model.solver;
+
+import se.kth.alialaa.labb4.model.Board;
+
+import java.util.Arrays;
+
+/**
+ * Backtracking Sudoku solver working on 9-bit candidate masks.
+ * Before every branch all naked singles (cells with one candidate) and hidden singles (digits
+ * with one place left in a row, column or box) are placed, and the search then branches on
+ * the empty cell with the fewest candidates (minimum remaining values). When no cell has two
+ * candidates but a digit has two places left in a unit, the search branches on those two places.
+ * <p>
+ * The candidates of every cell, and for every unit and digit the number of cells that can
+ * still take the digit, are kept up to date as candidates are removed. A cell dropping to one
+ * candidate or a count dropping to one is put on a worklist, so only what changed is looked
+ * at again, never the whole grid. The empty cells are kept in a list, the branch cell is chosen
+ * among them only. Every level of the search works on its own copy of the candidates and
+ * counts, and the placed digits are undone from a trail.
+ */
+public class BitmaskSolver implements SudokuSolver {
+    private static final int CELLS = Board.CELL_COUNT;
+    private static final int UNIT_DIGITS = 27 * 9;         // a count for every unit and digit
+    private static final int PLACED = 100;                  // the count of a digit already placed in the unit
+    private static final int[][] UNITS = new int[27][9];    // rows 0-8, columns 9-17, boxes 18-26
+    private static final int[][] CELL_UNITS = new int[CELLS][3];    // the row, column and box of every cell
+    private static final int[][] PEERS = new int[CELLS][Board.PEER_COUNT];
+
+    static {
+        int[] filled = new int[27];
+        for (int index = 0; index < CELLS; index++) {
+            int row = Board.row(index), col = Board.col(index), box = 18 + Board.box(index);
+            UNITS[row][filled[row]++] = index;
+            UNITS[9 + col][filled[9 + col]++] = index;
+            UNITS[box][filled[box]++] = index;
+            CELL_UNITS[index] = new int[] {row, 9 + col, box};
+            for (int n = 0; n < Board.PEER_COUNT; n++) {
+                PEERS[index][n] = Board.peer(index, n);
+            }
+        }
+    }
+
+    private final int[] cells;          // the digit of every cell, zero when empty
+    private final int[][] candidates;   // [depth][index] the candidates of every empty cell, zero when filled
+    private final int[][] counts;       // [depth][unit * 9 + digit - 1] the cells of the unit that can take the digit
+    private final int[] empty;          // the empty cells, the first emptyCount
+    private final int[] emptyPosition;  // [index] the position of a cell in empty
+    private int emptyCount;
+    private final int[] trail;          // the cells placed by the search, in order
+    private int trailSize;
+    private final int[] singles;        // worklist: cells left with one candidate
+    private int singleCount;
+    private final int[] hidden;         // worklist: unit * 9 + digit - 1 of the counts that dropped to one
+    private int hiddenCount;
+
+    private int limit;              // stop after this many solutions
+    private int solutions;          // solutions found so far
+    private int[] firstSolution;
+
+    /**
+     * Constructs a new solver.
+     */
+    public BitmaskSolver() {
+        this.cells = new int[CELLS];
+        this.candidates = new int[CELLS + 1][CELLS];
+        this.counts = new int[CELLS + 1][UNIT_DIGITS];
+        this.empty = new int[CELLS];
+        this.emptyPosition = new int[CELLS];
+        this.trail = new int[CELLS];
+        this.singles = new int[CELLS + 1];
+        this.hidden = new int[UNIT_DIGITS];
+    }
+
+    @Override
+    public int[] solve(int[] grid) {
+        run(grid, 1);
+        return firstSolution;
+    }
+
+    @Override
+    public int countSolutions(int[] grid, int limit) {
+        run(grid, limit);
+        return solutions;
+    }
+
+    private void run(int[] grid, int limit) {
+        this.limit = limit;
+        this.solutions = 0;
+        this.firstSolution = null;
+        if (limit > 0 && load(grid) && propagate(candidates[0], counts[0])) {
+            search(0);
+        }
+    }
+
+    /**
+     * Places the givens of a grid in the work arrays. The singles they leave are on the worklists.
+     *
+     * @return False if the givens already make the grid unsolvable, true otherwise.
+     */
+    private boolean load(int[] grid) {
+        if (grid.length != CELLS) {
+            throw new IllegalArgumentException("grid length " + grid.length);
+        }
+        for (int digit : grid) {
+            if (digit < 0 || digit > 9) {
+                throw new IllegalArgumentException("digit " + digit);
+            }
+        }
+        int[] current = candidates[0];
+        int[] count = counts[0];
+        Arrays.fill(cells, 0);
+        Arrays.fill(current, Board.ALL_DIGITS);
+        Arrays.fill(count, 9);
+        for (int index = 0; index < CELLS; index++) {
+            empty[index] = index;
+            emptyPosition[index] = index;
+        }
+        emptyCount = CELLS;
+        trailSize = 0;
+        singleCount = 0;
+        hiddenCount = 0;
+        for (int index = 0; index < CELLS; index++) {
+            int digit = grid[index];
+            if (digit != 0) {
+                int bit = 1 << (digit - 1);
+                if ((current[index] & bit) == 0 || !assign(current, count, index, bit)) {
+                    return false;   // two givens clash
+                }
+            }
+        }
+        trailSize = 0;      // the givens are never undone
+        return true;
+    }
+
+    private void search(int depth) {
+        int[] current = candidates[depth];
+        if (emptyCount == 0) {
+            solutions++;
+            if (firstSolution == null) {
+                firstSolution = cells.clone();
+            }
+            return;
+        }
+
+        // minimum remaining values
+        int best = -1;
+        int bestCount = 10;
+        for (int n = 0; n < emptyCount && bestCount > 2; n++) {
+            int index = empty[n];
+            int count = Integer.bitCount(current[index]);
+            if (count < bestCount) {
+                best = index;
+                bestCount = count;
+            }
+        }
+
+        // no cell with two candidates: a digit with two places left in a unit also gives two branches
+        if (bestCount > 2) {
+            int[] count = counts[depth];
+            for (int key = 0; key < UNIT_DIGITS; key++) {
+                if (count[key] == 2) {
+                    int bit = 1 << (key % 9);
+                    for (int index : UNITS[key / 9]) {
+                        if ((current[index] & bit) != 0 && solutions < limit) {
+                            branch(depth, index, bit);
+                        }
+                    }
+                    return;
+                }
+            }
+        }
+
+        for (int options = current[best]; options != 0 && solutions < limit; options &= options - 1) {
+            branch(depth, best, options & -options);
+        }
+    }
+
+    /**
+     * Searches the next level with a digit placed in a cell, on a copy of the candidates and counts.
+     */
+    private void branch(int depth, int index, int bit) {
+        int[] next = candidates[depth + 1];
+        int[] nextCount = counts[depth + 1];
+        int mark = trailSize;
+        System.arraycopy(candidates[depth], 0, next, 0, CELLS);
+        System.arraycopy(counts[depth], 0, nextCount, 0, UNIT_DIGITS);
+        singleCount = 0;
+        hiddenCount = 0;
+        if (assign(next, nextCount, index, bit) && propagate(next, nextCount)) {
+            search(depth + 1);
+        }
+        undo(mark);
+    }
+
+    /**
+     * Places the naked and hidden singles on the worklists, and the singles they lead to, until none are left.
+     *
+     * @return False if the grid turned out to be unsolvable, true otherwise.
+     */
+    private boolean propagate(int[] current, int[] count) {
+        while (true) {
+            if (singleCount > 0) {
+                int index = singles[--singleCount];
+                if (cells[index] == 0 && !assign(current, count, index, current[index])) {
+                    return false;
+                }
+            } else if (hiddenCount > 0) {
+                int key = hidden[--hiddenCount];
+                if (count[key] == 1) {
+                    int bit = 1 << (key % 9);
+                    for (int index : UNITS[key / 9]) {
+                        if ((current[index] & bit) != 0) {
+                            if (!assign(current, count, index, bit)) {
+                                return false;
+                            }
+                            break;
+                        }
+                    }
+                }
+            } else {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Places a digit in an empty cell: the other candidates of the cell and the digit in the
+     * peers are removed.
+     *
+     * @return False if a removal made the grid unsolvable, true otherwise.
+     */
+    private boolean assign(int[] current, int[] count, int index, int bit) {
+        for (int others = current[index] & ~bit; others != 0; others &= others - 1) {
+            if (!remove(current, count, index, others & -others)) {
+                return false;
+            }
+        }
+        int digit = Integer.numberOfTrailingZeros(bit);
+        cells[index] = digit + 1;
+        current[index] = 0;
+        trail[trailSize++] = index;
+        int last = empty[--emptyCount];
+        int position = emptyPosition[index];
+        empty[position] = last;
+        emptyPosition[last] = position;
+        empty[emptyCount] = index;
+        emptyPosition[index] = emptyCount;
+        for (int unit : CELL_UNITS[index]) {
+            count[unit * 9 + digit] = PLACED;
+        }
+        for (int peer : PEERS[index]) {
+            if ((current[peer] & bit) != 0 && !remove(current, count, peer, bit)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes a candidate from a cell, and puts the cell or the counts of its units that drop to
+     * one on the worklists.
+     *
+     * @return False if the cell has no candidate left, or the digit no place left in a unit.
+     */
+    private boolean remove(int[] current, int[] count, int index, int bit) {
+        int mask = current[index] & ~bit;
+        current[index] = mask;
+        if (mask == 0) {
+            return false;
+        }
+        if ((mask & (mask - 1)) == 0) {
+            singles[singleCount++] = index;
+        }
+        int digit = Integer.numberOfTrailingZeros(bit);
+        for (int unit : CELL_UNITS[index]) {
+            int key = unit * 9 + digit;
+            int left = --count[key];
+            if (left == 1) {
+                hidden[hiddenCount++] = key;
+            } else if (left == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Takes back the placements made after a mark, in reverse order. The candidates and counts
+     * need no undo, every search level has its own copy.
+     */
+    private void undo(int mark) {
+        while (trailSize > mark) {
+            cells[trail[--trailSize]] = 0;
+            emptyCount++;       // the cell was moved just past the end of the empty list when it was placed
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package se.kth.alialaa.labb4.model.solver;
+
+import se.kth.alialaa.labb4.model.SudokuUtilities.SudokuLevel;
+import se.kth.alialaa.labb4.model.solver.HumanSolver.Step;
+import se.kth.alialaa.labb4.model.solver.HumanSolver.Technique;
+
+/**
+ * Rates how hard a puzzle is for a human by solving it with a {@link HumanSolver}.
+ * The rating is the sum of the weights of all steps taken, and the level is decided by the
+ * hardest technique needed. A puzzle the techniques cannot finish is rated as needing
+ * trial and error. Instances are stateless and thread safe.
+ */
+public class DifficultyRater {
+
+    /**
+     * The result of rating a puzzle.
+     *
+     * @param score   The sum of the technique weights of every step.
+     * @param hardest The hardest technique used, {@link Technique#TRIAL_AND_ERROR} if the techniques got stuck.
+     * @param steps   The number of steps taken.
+     */
+    public record Rating(int score, Technique hardest, int steps) {
+
+        /**
+         * Gets the level of the rating.
+         *
+         * @return EASY for singles only, MEDIUM up to naked triples, HARD for anything harder.
+         */
+        public SudokuLevel level() {
+            if (hardest.compareTo(Technique.HIDDEN_SINGLE) <= 0) {
+                return SudokuLevel.EASY;
+            }
+            return hardest.compareTo(Technique.NAKED_TRIPLE) <= 0 ? SudokuLevel.MEDIUM : SudokuLevel.HARD;
+        }
+    }
+
+    /**
+     * Constructs a new rater.
+     */
+    public DifficultyRater() {
+    }
+
+    /**
+     * Rates a puzzle.
+     *
+     * @param grid The 81 digits of the puzzle, zero for an empty cell. Not modified.
+     * @return The rating of the puzzle.
+     * @throws IllegalArgumentException If the grid does not have 81 digits between 0 and 9.
+     */
+    public Rating rate(int[] grid) {
+        HumanSolver solver = new HumanSolver(grid);
+        Technique hardest = Technique.NAKED_SINGLE;
+        int score = 0;
+        int steps = 0;
+        Step step;
+        while ((step = solver.nextStep()) != null) {
+            score += step.technique().getWeight();
+            steps++;
+            if (step.technique().compareTo(hardest) > 0) {
+                hardest = step.technique();
+            }
+        }
+        if (!solver.isSolved()) {
+            hardest = Technique.TRIAL_AND_ERROR;
+            score += Technique.TRIAL_AND_ERROR.getWeight();
+        }
+        return new Rating(score, hardest, steps);
+    }
+}
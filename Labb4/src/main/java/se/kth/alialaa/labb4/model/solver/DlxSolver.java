@@ -0,0 +1,345 @@
+package se.kth.alialaa.labb4.model.solver;
+
+import se.kth.alialaa.labb4.model.Board;
+
+/**
+ * Exact cover Sudoku solver using Knuth's Dancing Links (Algorithm X).
+ * The puzzle is a matrix of 729 candidate rows (cell, digit) and 324 constraint columns
+ * (every cell filled once, every digit once per row, column and box). The node arrays are
+ * allocated once per instance and relinked at the start of every solve, so solving many
+ * puzzles does not allocate a new matrix each time.
+ */
+public class DlxSolver implements SudokuSolver {
+    private static final int CELLS = Board.CELL_COUNT;
+    private static final int COLUMNS = 4 * CELLS;           // 324 constraints
+    private static final int ROWS = CELLS * 9;              // 729 candidates
+    private static final int ROOT = 0;
+    private static final int FIRST_ROW_NODE = COLUMNS + 1;
+    private static final int NODES = FIRST_ROW_NODE + ROWS * 4;
+
+    private final int[] left;
+    private final int[] right;
+    private final int[] up;
+    private final int[] down;
+    private final int[] column;     // the column header of every node
+    private final int[] size;       // the number of nodes in every column
+    private final int[] chosen;     // the candidate rows of the current partial solution
+    private int chosenSize;
+
+    private int limit;              // stop after this many solutions
+    private int solutions;          // solutions found so far
+    private int[] firstSolution;
+
+    // the explicit search stack of an enumeration, one level per column branched on
+    private final int[] levelColumn;    // the column of every level
+    private final int[] levelEnd;       // the row at which every level stops, the column itself for all rows
+    private int levels;                 // the number of levels, -1 when the enumeration is finished
+    private int givenCount;             // the chosen rows of the givens, below the rows of the levels
+    private boolean delivered;          // the current state is a solution already returned by next()
+
+    /**
+     * Constructs a new solver and allocates its node arrays.
+     */
+    public DlxSolver() {
+        this.left = new int[NODES];
+        this.right = new int[NODES];
+        this.up = new int[NODES];
+        this.down = new int[NODES];
+        this.column = new int[NODES];
+        this.size = new int[COLUMNS + 1];
+        this.chosen = new int[CELLS];
+        this.levelColumn = new int[CELLS];
+        this.levelEnd = new int[CELLS];
+        this.levels = -1;
+    }
+
+    @Override
+    public int[] solve(int[] grid) {
+        run(grid, 1);
+        return firstSolution;
+    }
+
+    @Override
+    public int countSolutions(int[] grid, int limit) {
+        run(grid, limit);
+        return solutions;
+    }
+
+    private void run(int[] grid, int limit) {
+        this.limit = limit;
+        this.solutions = 0;
+        this.firstSolution = null;
+        if (limit > 0 && load(grid)) {
+            search();
+        }
+    }
+
+    /**
+     * Starts enumerating the solutions of a grid one by one with {@link #next()}. The search
+     * keeps its state in the matrix and an explicit stack, so every step covers and uncovers
+     * columns instead of copying grids.
+     *
+     * @param grid The 81 digits of the puzzle, zero for an empty cell. Not modified.
+     * @throws IllegalArgumentException If the grid does not have 81 digits between 0 and 9.
+     */
+    /*package private*/
+    void start(int[] grid) {
+        levels = load(grid) ? 0 : -1;
+        givenCount = chosenSize;
+        delivered = false;
+    }
+
+    /**
+     * Finds the next solution of the enumeration.
+     *
+     * @return A new array with the 81 digits of the solution, or null if there are no more solutions.
+     */
+    /*package private*/
+    int[] next() {
+        boolean backtrack = delivered;
+        delivered = false;
+        while (levels >= 0) {
+            if (backtrack) {
+                if (levels == 0) {
+                    levels = -1;
+                    return null;
+                }
+                int level = levels - 1;
+                int row = chosen[givenCount + level];
+                for (int node = left[row]; node != row; node = left[node]) {
+                    uncover(column[node]);
+                }
+                row = down[row];
+                if (row != levelColumn[level] && row != levelEnd[level]) {
+                    choose(level, row);
+                    backtrack = false;
+                } else {
+                    uncover(levelColumn[level]);
+                    levels--;
+                }
+            } else if (right[ROOT] == ROOT) {
+                delivered = true;
+                int[] solution = new int[CELLS];
+                for (int i = 0; i < chosenSize; i++) {
+                    int candidate = (chosen[i] - FIRST_ROW_NODE) / 4;
+                    solution[candidate / 9] = candidate % 9 + 1;
+                }
+                return solution;
+            } else {
+                backtrack = !branch();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Takes the untried rows of the shallowest level away from the enumeration, so that another
+     * enumeration can search them. At the start of an enumeration the first level is branched on first.
+     *
+     * @return One grid for every row taken, with the givens, the rows chosen above the level and the row,
+     * or null if there is nothing to take.
+     */
+    /*package private*/
+    int[][] split() {
+        if (levels == 0 && !delivered && right[ROOT] != ROOT && !branch()) {
+            return null;
+        }
+        for (int level = 0; level < levels; level++) {
+            int first = down[chosen[givenCount + level]];
+            int taken = 0;
+            for (int row = first; row != levelColumn[level] && row != levelEnd[level]; row = down[row]) {
+                taken++;
+            }
+            if (taken > 0) {
+                int[] prefix = new int[CELLS];
+                for (int i = 0; i < givenCount + level; i++) {
+                    int candidate = (chosen[i] - FIRST_ROW_NODE) / 4;
+                    prefix[candidate / 9] = candidate % 9 + 1;
+                }
+                int[][] grids = new int[taken][];
+                int row = first;
+                for (int i = 0; i < taken; i++, row = down[row]) {
+                    int candidate = (row - FIRST_ROW_NODE) / 4;
+                    grids[i] = prefix.clone();
+                    grids[i][candidate / 9] = candidate % 9 + 1;
+                }
+                levelEnd[level] = first;
+                return grids;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Pushes a level for the column with the fewest rows and chooses its first row.
+     *
+     * @return False if some column has no rows left, true otherwise.
+     */
+    private boolean branch() {
+        int best = right[ROOT];
+        for (int col = right[best]; col != ROOT && size[best] > 1; col = right[col]) {
+            if (size[col] < size[best]) {
+                best = col;
+            }
+        }
+        if (size[best] == 0) {
+            return false;
+        }
+        cover(best);
+        levelColumn[levels] = best;
+        levelEnd[levels] = best;
+        levels++;
+        choose(levels - 1, down[best]);
+        return true;
+    }
+
+    private void choose(int level, int row) {
+        chosen[givenCount + level] = row;
+        chosenSize = givenCount + level + 1;
+        for (int node = right[row]; node != row; node = right[node]) {
+            cover(column[node]);
+        }
+    }
+
+    /**
+     * Relinks the full matrix and selects the rows of the givens.
+     *
+     * @return False if two givens clash, true otherwise.
+     */
+    private boolean load(int[] grid) {
+        if (grid.length != CELLS) {
+            throw new IllegalArgumentException("grid length " + grid.length);
+        }
+        link();
+        chosenSize = 0;
+        for (int index = 0; index < CELLS; index++) {
+            int digit = grid[index];
+            if (digit < 0 || digit > 9) {
+                throw new IllegalArgumentException("digit " + digit);
+            }
+            if (digit != 0) {
+                int first = rowNode(index * 9 + digit - 1);
+                int node = first;
+                do {
+                    if (isCovered(column[node])) {
+                        return false;   // the constraint is already met by another given
+                    }
+                    node = right[node];
+                } while (node != first);
+                do {
+                    cover(column[node]);
+                    node = right[node];
+                } while (node != first);
+                chosen[chosenSize++] = first;
+            }
+        }
+        return true;
+    }
+
+    private void search() {
+        if (right[ROOT] == ROOT) {
+            solutions++;
+            if (firstSolution == null) {
+                firstSolution = new int[CELLS];
+                for (int i = 0; i < chosenSize; i++) {
+                    int candidate = (chosen[i] - FIRST_ROW_NODE) / 4;
+                    firstSolution[candidate / 9] = candidate % 9 + 1;
+                }
+            }
+            return;
+        }
+
+        // the column with the fewest rows
+        int best = right[ROOT];
+        for (int col = right[best]; col != ROOT && size[best] > 1; col = right[col]) {
+            if (size[col] < size[best]) {
+                best = col;
+            }
+        }
+        if (size[best] == 0) {
+            return;
+        }
+
+        cover(best);
+        for (int row = down[best]; row != best && solutions < limit; row = down[row]) {
+            chosen[chosenSize++] = row;
+            for (int node = right[row]; node != row; node = right[node]) {
+                cover(column[node]);
+            }
+            search();
+            for (int node = left[row]; node != row; node = left[node]) {
+                uncover(column[node]);
+            }
+            chosenSize--;
+        }
+        uncover(best);
+    }
+
+    private void cover(int col) {
+        right[left[col]] = right[col];
+        left[right[col]] = left[col];
+        for (int row = down[col]; row != col; row = down[row]) {
+            for (int node = right[row]; node != row; node = right[node]) {
+                down[up[node]] = down[node];
+                up[down[node]] = up[node];
+                size[column[node]]--;
+            }
+        }
+    }
+
+    private void uncover(int col) {
+        for (int row = up[col]; row != col; row = up[row]) {
+            for (int node = left[row]; node != row; node = left[node]) {
+                size[column[node]]++;
+                down[up[node]] = node;
+                up[down[node]] = node;
+            }
+        }
+        right[left[col]] = col;
+        left[right[col]] = col;
+    }
+
+    private boolean isCovered(int col) {
+        return right[left[col]] != col;
+    }
+
+    /**
+     * Builds the complete exact cover matrix in the preallocated arrays.
+     */
+    private void link() {
+        for (int col = 0; col <= COLUMNS; col++) {
+            left[col] = col == 0 ? COLUMNS : col - 1;
+            right[col] = col == COLUMNS ? 0 : col + 1;
+            up[col] = col;
+            down[col] = col;
+            column[col] = col;
+            size[col] = 0;
+        }
+        for (int candidate = 0; candidate < ROWS; candidate++) {
+            int index = candidate / 9;
+            int digit = candidate % 9;
+            int first = rowNode(candidate);
+            for (int i = 0; i < 4; i++) {
+                int node = first + i;
+                int col = switch (i) {
+                    case 0 -> 1 + index;                                        // the cell is filled
+                    case 1 -> 1 + CELLS + Board.row(index) * 9 + digit;         // the digit is in the row
+                    case 2 -> 1 + 2 * CELLS + Board.col(index) * 9 + digit;     // the digit is in the column
+                    default -> 1 + 3 * CELLS + Board.box(index) * 9 + digit;    // the digit is in the box
+                };
+                left[node] = first + (i + 3) % 4;
+                right[node] = first + (i + 1) % 4;
+                column[node] = col;
+                up[node] = up[col];
+                down[node] = col;
+                down[up[col]] = node;
+                up[col] = node;
+                size[col]++;
+            }
+        }
+    }
+
+    private static int rowNode(int candidate) {
+        return FIRST_ROW_NODE + candidate * 4;
+    }
+}
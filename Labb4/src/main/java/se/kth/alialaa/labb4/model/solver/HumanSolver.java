@@ -0,0 +1,581 @@
+package se.kth.alialaa.labb4.model.solver;
+
+import se.kth.alialaa.labb4.model.Board;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static se.kth.alialaa.labb4.model.SudokuUtilities.GRID_SIZE;
+
+/**
+ * Solves a grid one step at a time with the techniques a human player uses, always trying the
+ * cheapest technique first. A step either places a digit or removes candidates; the solver
+ * keeps a 9-bit candidate mask for every empty cell.
+ * Steps are found one at a time, by {@link #nextStep()} or lazily by {@link #steps()}, so
+ * showing one hint costs one step and not a whole solve.
+ * An instance holds the state of one puzzle and is not thread safe.
+ */
+public class HumanSolver {
+
+    /**
+     * The solving techniques, in the order they are tried, with a weight reflecting how hard they are.
+     */
+    public enum Technique {
+        NAKED_SINGLE(1), HIDDEN_SINGLE(2), LOCKED_CANDIDATES(6), NAKED_PAIR(10), HIDDEN_PAIR(12),
+        NAKED_TRIPLE(15), X_WING(25), SWORDFISH(35), XY_CHAIN(45), TRIAL_AND_ERROR(100);
+
+        private final int weight;
+
+        Technique(int weight) {
+            this.weight = weight;
+        }
+
+        /**
+         * Gets the difficulty weight of the technique.
+         *
+         * @return The weight, higher for harder techniques.
+         */
+        public int getWeight() {
+            return weight;
+        }
+    }
+
+    /**
+     * Candidates removed from one cell.
+     *
+     * @param cell   The index of the cell.
+     * @param digits A 9-bit mask of the digits removed, bit d-1 for digit d.
+     */
+    public record Elimination(int cell, int digits) {
+    }
+
+    /**
+     * One solving step. A placement step has a cell and the digit placed in it; an elimination
+     * step has cell -1, the first digit that was removed, and the candidates it removed.
+     *
+     * @param technique    The technique that justified the step.
+     * @param cell         The index of the cell filled, or -1 for an elimination.
+     * @param digit        The digit placed or eliminated.
+     * @param eliminations The candidates removed by an elimination step, empty for a placement.
+     */
+    public record Step(Technique technique, int cell, int digit, List<Elimination> eliminations) {
+
+        /**
+         * Constructs a step that removed no candidates, a placement.
+         *
+         * @param technique The technique that justified the step.
+         * @param cell      The index of the cell filled, or -1 for an elimination.
+         * @param digit     The digit placed or eliminated.
+         */
+        public Step(Technique technique, int cell, int digit) {
+            this(technique, cell, digit, List.of());
+        }
+
+        /**
+         * Checks if the step fills a cell.
+         *
+         * @return True for a placement, false for an elimination.
+         */
+        public boolean isPlacement() {
+            return cell >= 0;
+        }
+
+        /**
+         * Describes the step for the player, for example "Hidden single: 4 in row 2, column 7".
+         *
+         * @return A one line description, rows and columns counted from 1.
+         */
+        public String explain() {
+            StringBuilder text = new StringBuilder(name(technique)).append(": ");
+            if (isPlacement()) {
+                return text.append(digit).append(" in ").append(cellName(cell)).toString();
+            }
+            text.append("remove ");
+            for (int n = 0; n < eliminations.size(); n++) {
+                Elimination elimination = eliminations.get(n);
+                text.append(n == 0 ? "" : "; ");
+                for (int digits = elimination.digits(); digits != 0; digits &= digits - 1) {
+                    text.append(Integer.numberOfTrailingZeros(digits) + 1);
+                }
+                text.append(" from ").append(cellName(elimination.cell()));
+            }
+            return text.toString();
+        }
+
+        private static String name(Technique technique) {
+            String name = technique.name().replace('_', ' ').toLowerCase();
+            return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        }
+
+        private static String cellName(int index) {
+            return "row " + (Board.row(index) + 1) + ", column " + (Board.col(index) + 1);
+        }
+    }
+
+    private static final int MAX_CHAIN_LENGTH = 12;
+
+    private final int[] values;         // the digit of every cell, zero when empty
+    private final int[] candidates;     // the candidate mask of every empty cell
+    private int empty;                  // the number of empty cells
+
+    // the candidates removed by the step being searched
+    private final List<Elimination> eliminations;
+
+    // scratch for the chain search
+    private final boolean[] inChain;
+
+    /**
+     * Constructs a solver for a grid.
+     *
+     * @param grid The 81 digits of the puzzle, zero for an empty cell. Not modified.
+     * @throws IllegalArgumentException If the grid does not have 81 digits between 0 and 9.
+     */
+    public HumanSolver(int[] grid) {
+        if (grid.length != Board.CELL_COUNT) {
+            throw new IllegalArgumentException("grid length " + grid.length);
+        }
+        this.values = new int[Board.CELL_COUNT];
+        this.candidates = new int[Board.CELL_COUNT];
+        this.inChain = new boolean[Board.CELL_COUNT];
+        this.eliminations = new ArrayList<>();
+        for (int index = 0; index < Board.CELL_COUNT; index++) {
+            candidates[index] = Board.ALL_DIGITS;
+        }
+        empty = Board.CELL_COUNT;
+        for (int index = 0; index < Board.CELL_COUNT; index++) {
+            int digit = grid[index];
+            if (digit < 0 || digit > 9) {
+                throw new IllegalArgumentException("digit " + digit);
+            }
+            if (digit != 0) {
+                place(index, digit);
+            }
+        }
+    }
+
+    /**
+     * Checks if every cell is filled.
+     *
+     * @return True if the grid is solved, false otherwise.
+     */
+    public boolean isSolved() {
+        return empty == 0;
+    }
+
+    /**
+     * Gets the digit of a cell.
+     *
+     * @param index The index of the cell.
+     * @return The digit, or zero if the cell is still empty.
+     */
+    public int value(int index) {
+        return values[index];
+    }
+
+    /**
+     * Gets the remaining candidates of a cell.
+     *
+     * @param index The index of the cell.
+     * @return A 9-bit mask with bit d-1 set for every candidate d, zero for a filled cell.
+     */
+    public int candidates(int index) {
+        return candidates[index];
+    }
+
+    /**
+     * Finds and applies the next step using the cheapest technique that makes progress.
+     *
+     * @return The step taken, or null if the grid is solved or no technique applies.
+     */
+    public Step nextStep() {
+        if (empty == 0) {
+            return null;
+        }
+        Step step;
+        if ((step = nakedSingle()) != null
+                || (step = hiddenSingle()) != null
+                || (step = lockedCandidates()) != null
+                || (step = nakedSubset(2, Technique.NAKED_PAIR)) != null
+                || (step = hiddenPair()) != null
+                || (step = nakedSubset(3, Technique.NAKED_TRIPLE)) != null
+                || (step = fish(2, Technique.X_WING)) != null
+                || (step = fish(3, Technique.SWORDFISH)) != null
+                || (step = xyChain()) != null) {
+            if (!eliminations.isEmpty()) {
+                step = new Step(step.technique(), step.cell(), step.digit(), List.copyOf(eliminations));
+                eliminations.clear();
+            }
+            return step;
+        }
+        return null;
+    }
+
+    /**
+     * Gets the remaining steps as a lazy stream: a step is only searched for when the stream
+     * pulls it, and applied to this solver as it is. The stream ends when the grid is solved or
+     * no technique applies.
+     *
+     * @return A sequential, ordered stream of the steps.
+     */
+    public Stream<Step> steps() {
+        return StreamSupport.stream(new StepSpliterator(), false);
+    }
+
+    /**
+     * Gets the steps solving a grid as a lazy stream, see {@link #steps()}.
+     *
+     * @param grid The 81 digits of the puzzle, zero for an empty cell. Not modified.
+     * @return A sequential, ordered stream of the steps.
+     * @throws IllegalArgumentException If the grid does not have 81 digits between 0 and 9.
+     */
+    public static Stream<Step> steps(int[] grid) {
+        return new HumanSolver(grid).steps();
+    }
+
+    /**
+     * Pulls one step from the solver at a time.
+     */
+    private class StepSpliterator extends Spliterators.AbstractSpliterator<Step> {
+
+        StepSpliterator() {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Step> action) {
+            Step step = nextStep();
+            if (step == null) {
+                return false;
+            }
+            action.accept(step);
+            return true;
+        }
+    }
+
+    private Step nakedSingle() {
+        for (int index = 0; index < Board.CELL_COUNT; index++) {
+            int mask = candidates[index];
+            if (values[index] == 0 && mask != 0 && (mask & (mask - 1)) == 0) {
+                int digit = Integer.numberOfTrailingZeros(mask) + 1;
+                place(index, digit);
+                return new Step(Technique.NAKED_SINGLE, index, digit);
+            }
+        }
+        return null;
+    }
+
+    private Step hiddenSingle() {
+        for (int unit = 0; unit < Board.UNIT_COUNT; unit++) {
+            int once = 0;
+            int twice = 0;
+            for (int n = 0; n < GRID_SIZE; n++) {
+                int mask = candidates[Board.unitCell(unit, n)];
+                twice |= once & mask;
+                once |= mask;
+            }
+            int hidden = once & ~twice;
+            if (hidden != 0) {
+                int bit = hidden & -hidden;
+                for (int n = 0; n < GRID_SIZE; n++) {
+                    int index = Board.unitCell(unit, n);
+                    if ((candidates[index] & bit) != 0) {
+                        int digit = Integer.numberOfTrailingZeros(bit) + 1;
+                        place(index, digit);
+                        return new Step(Technique.HIDDEN_SINGLE, index, digit);
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Pointing: a digit confined to one line inside a box is removed from the rest of the line.
+     * Claiming: a digit confined to one box inside a line is removed from the rest of the box.
+     */
+    private Step lockedCandidates() {
+        for (int unit = 0; unit < Board.UNIT_COUNT; unit++) {
+            for (int digit = 1; digit <= GRID_SIZE; digit++) {
+                int bit = Board.bit(digit);
+                int rows = 0, cols = 0, boxes = 0;
+                for (int n = 0; n < GRID_SIZE; n++) {
+                    int index = Board.unitCell(unit, n);
+                    if ((candidates[index] & bit) != 0) {
+                        rows |= 1 << Board.row(index);
+                        cols |= 1 << Board.col(index);
+                        boxes |= 1 << Board.box(index);
+                    }
+                }
+                if (rows == 0) {
+                    continue;
+                }
+                boolean changed = false;
+                if (unit >= 2 * GRID_SIZE) {
+                    if (Integer.bitCount(rows) == 1) {
+                        changed = eliminateOutside(Integer.numberOfTrailingZeros(rows), unit, bit);
+                    } else if (Integer.bitCount(cols) == 1) {
+                        changed = eliminateOutside(GRID_SIZE + Integer.numberOfTrailingZeros(cols), unit, bit);
+                    }
+                } else if (Integer.bitCount(boxes) == 1) {
+                    changed = eliminateOutside(2 * GRID_SIZE + Integer.numberOfTrailingZeros(boxes), unit, bit);
+                }
+                if (changed) {
+                    return new Step(Technique.LOCKED_CANDIDATES, -1, digit);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes a digit from the cells of one unit that are not in another unit.
+     */
+    private boolean eliminateOutside(int unit, int keep, int bit) {
+        boolean changed = false;
+        for (int n = 0; n < GRID_SIZE; n++) {
+            int index = Board.unitCell(unit, n);
+            if (!inUnit(index, keep)) {
+                changed |= eliminate(index, bit);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Naked pairs and triples: size cells of a unit sharing size candidates in total own those
+     * digits, which are removed from the other cells of the unit.
+     */
+    private Step nakedSubset(int size, Technique technique) {
+        int[] cells = new int[GRID_SIZE];
+        for (int unit = 0; unit < Board.UNIT_COUNT; unit++) {
+            int count = 0;
+            for (int n = 0; n < GRID_SIZE; n++) {
+                int index = Board.unitCell(unit, n);
+                int candidateCount = Integer.bitCount(candidates[index]);
+                if (candidateCount >= 2 && candidateCount <= size) {
+                    cells[count++] = index;
+                }
+            }
+            for (int a = 0; a < count; a++) {
+                for (int b = a + 1; b < count; b++) {
+                    int pair = candidates[cells[a]] | candidates[cells[b]];
+                    if (size == 2) {
+                        if (Integer.bitCount(pair) == 2 && eliminateSubset(unit, pair, cells[a], cells[b], -1)) {
+                            return new Step(technique, -1, Integer.numberOfTrailingZeros(pair) + 1);
+                        }
+                        continue;
+                    }
+                    for (int c = b + 1; c < count; c++) {
+                        int triple = pair | candidates[cells[c]];
+                        if (Integer.bitCount(triple) == 3 && eliminateSubset(unit, triple, cells[a], cells[b], cells[c])) {
+                            return new Step(technique, -1, Integer.numberOfTrailingZeros(triple) + 1);
+                        }
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private boolean eliminateSubset(int unit, int digits, int first, int second, int third) {
+        boolean changed = false;
+        for (int n = 0; n < GRID_SIZE; n++) {
+            int index = Board.unitCell(unit, n);
+            if (index != first && index != second && index != third) {
+                changed |= eliminate(index, digits);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Hidden pairs: two digits that can only go in the same two cells of a unit remove all
+     * other candidates from those cells.
+     */
+    private Step hiddenPair() {
+        int[] places = new int[GRID_SIZE + 1];
+        for (int unit = 0; unit < Board.UNIT_COUNT; unit++) {
+            for (int digit = 1; digit <= GRID_SIZE; digit++) {
+                places[digit] = 0;
+                for (int n = 0; n < GRID_SIZE; n++) {
+                    if ((candidates[Board.unitCell(unit, n)] & Board.bit(digit)) != 0) {
+                        places[digit] |= 1 << n;
+                    }
+                }
+            }
+            for (int first = 1; first <= GRID_SIZE; first++) {
+                if (Integer.bitCount(places[first]) != 2) {
+                    continue;
+                }
+                for (int second = first + 1; second <= GRID_SIZE; second++) {
+                    if (places[second] == places[first]) {
+                        int keep = Board.bit(first) | Board.bit(second);
+                        int cellA = Board.unitCell(unit, Integer.numberOfTrailingZeros(places[first]));
+                        int cellB = Board.unitCell(unit, 31 - Integer.numberOfLeadingZeros(places[first]));
+                        boolean changed = eliminate(cellA, ~keep) | eliminate(cellB, ~keep);
+                        if (changed) {
+                            return new Step(Technique.HIDDEN_PAIR, -1, first);
+                        }
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * X-Wing (size 2) and Swordfish (size 3): when a digit is confined to the same size columns
+     * in size rows, it is removed from those columns in every other row, and the same with rows
+     * and columns swapped.
+     */
+    private Step fish(int size, Technique technique) {
+        int[] lines = new int[GRID_SIZE];
+        int[] positions = new int[GRID_SIZE];
+        for (int digit = 1; digit <= GRID_SIZE; digit++) {
+            int bit = Board.bit(digit);
+            for (int base = 0; base < 2 * GRID_SIZE; base += GRID_SIZE) {   // rows, then columns
+                int count = 0;
+                for (int line = 0; line < GRID_SIZE; line++) {
+                    int mask = 0;
+                    for (int n = 0; n < GRID_SIZE; n++) {
+                        if ((candidates[Board.unitCell(base + line, n)] & bit) != 0) {
+                            mask |= 1 << n;
+                        }
+                    }
+                    int places = Integer.bitCount(mask);
+                    if (places >= 2 && places <= size) {
+                        lines[count] = line;
+                        positions[count++] = mask;
+                    }
+                }
+                int cover = GRID_SIZE - base;   // the crossing units: columns for rows and rows for columns
+                for (int a = 0; a < count; a++) {
+                    for (int b = a + 1; b < count; b++) {
+                        if (size == 2) {
+                            int union = positions[a] | positions[b];
+                            if (Integer.bitCount(union) == 2
+                                    && eliminateFish(cover, union, bit, base, lines[a], lines[b], -1)) {
+                                return new Step(technique, -1, digit);
+                            }
+                            continue;
+                        }
+                        for (int c = b + 1; c < count; c++) {
+                            int union = positions[a] | positions[b] | positions[c];
+                            if (Integer.bitCount(union) == 3
+                                    && eliminateFish(cover, union, bit, base, lines[a], lines[b], lines[c])) {
+                                return new Step(technique, -1, digit);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private boolean eliminateFish(int cover, int union, int bit, int base, int lineA, int lineB, int lineC) {
+        boolean changed = false;
+        for (int crossing = union; crossing != 0; crossing &= crossing - 1) {
+            int unit = cover + Integer.numberOfTrailingZeros(crossing);
+            for (int n = 0; n < GRID_SIZE; n++) {
+                // n is the row when covering a column and the column when covering a row
+                if (n != lineA && n != lineB && n != lineC) {
+                    changed |= eliminate(Board.unitCell(unit, n), bit);
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * XY-Chain: a chain of cells with two candidates each, where consecutive cells see each other
+     * and share a digit. If the start cell is not digit a, the chain forces the end cell to be a,
+     * so a can be removed from every cell seeing both ends. An XY-Wing is the three cell case.
+     */
+    private Step xyChain() {
+        for (int start = 0; start < Board.CELL_COUNT; start++) {
+            int mask = candidates[start];
+            if (Integer.bitCount(mask) != 2) {
+                continue;
+            }
+            for (int pick = mask; pick != 0; pick &= pick - 1) {
+                int target = pick & -pick;                  // the digit the start cell might be
+                int forced = mask & ~target;                // what the start cell is otherwise
+                inChain[start] = true;
+                boolean changed = extendChain(start, start, forced, target, 1);
+                inChain[start] = false;
+                if (changed) {
+                    return new Step(Technique.XY_CHAIN, -1, Integer.numberOfTrailingZeros(target) + 1);
+                }
+            }
+        }
+        return null;
+    }
+
+    private boolean extendChain(int start, int current, int forced, int target, int length) {
+        if (length >= MAX_CHAIN_LENGTH) {
+            return false;
+        }
+        for (int n = 0; n < Board.PEER_COUNT; n++) {
+            int next = Board.peer(current, n);
+            int mask = candidates[next];
+            if (inChain[next] || Integer.bitCount(mask) != 2 || (mask & forced) == 0) {
+                continue;
+            }
+            int nextForced = mask & ~forced;    // current holds forced, so next holds its other digit
+            if (nextForced == target && length >= 2 && eliminateSeenByBoth(start, next, target)) {
+                return true;
+            }
+            inChain[next] = true;
+            boolean changed = extendChain(start, next, nextForced, target, length + 1);
+            inChain[next] = false;
+            if (changed) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean eliminateSeenByBoth(int first, int second, int bit) {
+        boolean changed = false;
+        for (int n = 0; n < Board.PEER_COUNT; n++) {
+            int index = Board.peer(first, n);
+            if (index != second && Board.isPeer(index, second)) {
+                changed |= eliminate(index, bit);
+            }
+        }
+        return changed;
+    }
+
+    private static boolean inUnit(int index, int unit) {
+        if (unit < GRID_SIZE) {
+            return Board.row(index) == unit;
+        }
+        return unit < 2 * GRID_SIZE ? Board.col(index) == unit - GRID_SIZE : Board.box(index) == unit - 2 * GRID_SIZE;
+    }
+
+    private boolean eliminate(int index, int mask) {
+        int removed = candidates[index] & mask;
+        if (removed == 0) {
+            return false;
+        }
+        candidates[index] &= ~mask;
+        eliminations.add(new Elimination(index, removed));
+        return true;
+    }
+
+    private void place(int index, int digit) {
+        values[index] = digit;
+        candidates[index] = 0;
+        empty--;
+        int bit = Board.bit(digit);
+        for (int n = 0; n < Board.PEER_COUNT; n++) {
+            candidates[Board.peer(index, n)] &= ~bit;
+        }
+    }
+}
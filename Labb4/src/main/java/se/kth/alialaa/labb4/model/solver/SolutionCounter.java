@@ -0,0 +1,269 @@
+package se.kth.alialaa.labb4.model.solver;
+
+import se.kth.alialaa.labb4.model.Board;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Counts and enumerates the solutions of a grid using all cores.
+ * The top of the search tree is split on the cell with the fewest candidates into fork-join
+ * tasks; once a branch has few enough empty cells it is counted by a {@link DlxSolver}
+ * belonging to the worker thread. Instances are thread safe.
+ */
+public class SolutionCounter {
+    private static final int SPLIT_EMPTY_CELLS = 50;    // branches with fewer empty cells are counted sequentially
+
+    private static final ThreadLocal<DlxSolver> SOLVERS = ThreadLocal.withInitial(DlxSolver::new);
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructs a new counter running on the common fork-join pool.
+     */
+    public SolutionCounter() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a new counter running on the given pool.
+     *
+     * @param pool The pool to split the search over.
+     */
+    public SolutionCounter(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Counts the solutions of a grid, stopping early at a limit.
+     *
+     * @param grid  The 81 digits of the puzzle, zero for an empty cell. Not modified.
+     * @param limit The number of solutions after which counting stops, for example 2 for a uniqueness check.
+     * @return The number of solutions, at most limit.
+     * @throws IllegalArgumentException If the grid does not have 81 digits between 0 and 9.
+     */
+    public int countSolutions(int[] grid, int limit) {
+        int[] start = validated(grid);
+        if (start == null || limit <= 0) {
+            return 0;
+        }
+        AtomicInteger found = new AtomicInteger();
+        pool.invoke(new CountTask(start, limit, found));
+        return Math.min(found.get(), limit);
+    }
+
+    /**
+     * Checks if a grid has exactly one solution.
+     *
+     * @param grid The 81 digits of the puzzle, zero for an empty cell. Not modified.
+     * @return True if the grid has one and only one solution, false otherwise.
+     */
+    public boolean hasUniqueSolution(int[] grid) {
+        return countSolutions(grid, 2) == 1;
+    }
+
+    /**
+     * Streams all solutions of a grid. The solutions are searched lazily, only as far as the
+     * stream is consumed, and a parallel stream splits the remaining search tree between threads.
+     *
+     * @param grid The 81 digits of the puzzle, zero for an empty cell. Not modified.
+     * @return A stream of solutions, each a new array of 81 digits.
+     * @throws IllegalArgumentException If the grid does not have 81 digits between 0 and 9.
+     */
+    public static Stream<int[]> solutions(int[] grid) {
+        int[] start = validated(grid);
+        Deque<int[]> pending = new ArrayDeque<>();
+        if (start != null) {
+            pending.push(start);
+        }
+        return StreamSupport.stream(new SolutionSpliterator(pending), false);
+    }
+
+    /**
+     * Copies a grid and checks that its givens do not clash.
+     *
+     * @return The copy, or null if two givens clash.
+     */
+    private static int[] validated(int[] grid) {
+        if (grid.length != Board.CELL_COUNT) {
+            throw new IllegalArgumentException("grid length " + grid.length);
+        }
+        int[] used = new int[27];
+        for (int index = 0; index < Board.CELL_COUNT; index++) {
+            int digit = grid[index];
+            if (digit < 0 || digit > 9) {
+                throw new IllegalArgumentException("digit " + digit);
+            }
+            if (digit != 0) {
+                int bit = Board.bit(digit);
+                if (((used[Board.row(index)] | used[9 + Board.col(index)] | used[18 + Board.box(index)]) & bit) != 0) {
+                    return null;
+                }
+                used[Board.row(index)] |= bit;
+                used[9 + Board.col(index)] |= bit;
+                used[18 + Board.box(index)] |= bit;
+            }
+        }
+        return grid.clone();
+    }
+
+    /**
+     * Finds the empty cell with the fewest candidates.
+     *
+     * @param grid The grid to look in.
+     * @return The cell index in the low byte and its candidate mask shifted 8 bits up,
+     * -1 if the grid is full, or 0 candidates if some empty cell has none.
+     */
+    private static int branchCell(int[] grid) {
+        int[] used = new int[27];
+        for (int index = 0; index < Board.CELL_COUNT; index++) {
+            if (grid[index] != 0) {
+                int bit = Board.bit(grid[index]);
+                used[Board.row(index)] |= bit;
+                used[9 + Board.col(index)] |= bit;
+                used[18 + Board.box(index)] |= bit;
+            }
+        }
+        int best = -1;
+        int bestCandidates = 0;
+        int bestCount = 10;
+        for (int index = 0; index < Board.CELL_COUNT; index++) {
+            if (grid[index] == 0) {
+                int candidates = ~(used[Board.row(index)] | used[9 + Board.col(index)] | used[18 + Board.box(index)])
+                        & Board.ALL_DIGITS;
+                int count = Integer.bitCount(candidates);
+                if (count < bestCount) {
+                    best = index;
+                    bestCandidates = candidates;
+                    bestCount = count;
+                    if (count == 0) {
+                        break;
+                    }
+                }
+            }
+        }
+        return best < 0 ? -1 : bestCandidates << 8 | best;
+    }
+
+    private static int emptyCells(int[] grid) {
+        int empty = 0;
+        for (int digit : grid) {
+            if (digit == 0) {
+                empty++;
+            }
+        }
+        return empty;
+    }
+
+    /**
+     * Counts the solutions below one node of the search tree.
+     */
+    private static class CountTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] grid;
+        private final int limit;
+        private final AtomicInteger found;
+
+        CountTask(int[] grid, int limit, AtomicInteger found) {
+            this.grid = grid;
+            this.limit = limit;
+            this.found = found;
+        }
+
+        @Override
+        protected void compute() {
+            int remaining = limit - found.get();
+            if (remaining <= 0) {
+                return;
+            }
+            if (emptyCells(grid) < SPLIT_EMPTY_CELLS) {
+                found.addAndGet(SOLVERS.get().countSolutions(grid, remaining));
+                return;
+            }
+            int branch = branchCell(grid);
+            if (branch < 0) {
+                found.incrementAndGet();
+                return;
+            }
+            int cell = branch & 0xFF;
+            int candidates = branch >>> 8;
+            CountTask[] children = new CountTask[Integer.bitCount(candidates)];
+            for (int i = 0; candidates != 0; i++, candidates &= candidates - 1) {
+                int[] child = grid.clone();
+                child[cell] = Integer.numberOfTrailingZeros(candidates) + 1;
+                children[i] = new CountTask(child, limit, found);
+            }
+            invokeAll(children);
+        }
+    }
+
+    /**
+     * Enumerates solutions with a {@link DlxSolver} of its own, one subtree of the search after
+     * another. Splitting hands the untried rows of the shallowest search level, the largest
+     * subtrees, to the new spliterator; otherwise subtrees not yet started.
+     */
+    private static class SolutionSpliterator implements Spliterator<int[]> {
+        private final DlxSolver solver = new DlxSolver();
+        private final Deque<int[]> pending;  // grids of the subtrees not yet started
+        private boolean finished;
+
+        SolutionSpliterator(Deque<int[]> pending) {
+            this.pending = pending;
+            if (!pending.isEmpty()) {
+                solver.start(pending.pop());
+            }
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super int[]> action) {
+            while (true) {
+                int[] solution = solver.next();
+                if (solution != null) {
+                    action.accept(solution);
+                    return true;
+                }
+                if (pending.isEmpty()) {
+                    finished = true;
+                    return false;
+                }
+                solver.start(pending.pop());
+            }
+        }
+
+        @Override
+        public Spliterator<int[]> trySplit() {
+            int[][] taken = solver.split();
+            if (taken != null) {
+                return new SolutionSpliterator(new ArrayDeque<>(List.of(taken)));
+            }
+            int half = pending.size() / 2;
+            if (half == 0) {
+                return null;
+            }
+            Deque<int[]> split = new ArrayDeque<>();
+            for (int i = 0; i < half; i++) {
+                split.push(pending.removeLast());
+            }
+            return new SolutionSpliterator(split);
+        }
+
+        @Override
+        public long estimateSize() {
+            return finished ? 0 : Long.MAX_VALUE;
+        }
+
+        @Override
+        public int characteristics() {
+            return NONNULL;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package se.kth.alialaa.labb4.model.solver;
+
+import se.kth.alialaa.labb4.model.Board;
+import se.kth.alialaa.labb4.model.SudokuUtilities;
+import se.kth.alialaa.labb4.model.SudokuUtilities.SudokuLevel;
+
+import java.util.Random;
+
+/**
+ * Generates random Sudoku puzzles with a unique solution.
+ * A full grid is built by filling the three diagonal boxes with random permutations and
+ * solving the rest. Clues are then removed in random order, in pairs that are symmetric
+ * around the centre, as long as the puzzle keeps a unique solution and has more clues
+ * than the level asks for. The puzzle is then rated with a {@link DifficultyRater}, and a new
+ * one is generated until the rating matches the level or the attempts run out.
+ * An instance is not thread safe.
+ */
+public class SudokuGenerator {
+    private static final int MAX_ATTEMPTS = 60;
+
+    private final Random random;
+    private final BitmaskSolver solver;
+    private final DifficultyRater rater;
+
+    /**
+     * Constructs a new generator.
+     */
+    public SudokuGenerator() {
+        this(new Random());
+    }
+
+    /**
+     * Constructs a new generator using the given source of randomness.
+     *
+     * @param random The random generator, a seeded one gives reproducible puzzles.
+     */
+    public SudokuGenerator(Random random) {
+        this.random = random;
+        this.solver = new BitmaskSolver();
+        this.rater = new DifficultyRater();
+    }
+
+    /**
+     * Gets the number of clues a level aims for. Fewer clues means a harder puzzle.
+     *
+     * @param level The difficulty level.
+     * @return The number of clues the generator stops removing at.
+     */
+    public static int targetClues(SudokuLevel level) {
+        switch (level) {
+            case EASY: return 38;
+            case HARD: return 24;
+            default: return 30;
+        }
+    }
+
+    /**
+     * Generates a puzzle for a level. If no attempt is rated at the level, the attempt rated
+     * closest to it is returned.
+     *
+     * @param level The difficulty level.
+     * @return A 3-dimensional int matrix in the format of {@link SudokuUtilities#generateSudokuMatrix(SudokuLevel)}.
+     */
+    public int[][][] generate(SudokuLevel level) {
+        int[] bestSolution = null;
+        int[] bestGivens = null;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int attempt = 0; attempt < MAX_ATTEMPTS && bestDistance > 0; attempt++) {
+            int[] solution = randomSolution();
+            int[] givens = removeClues(solution, targetClues(level));
+            int distance = Math.abs(rater.rate(givens).level().ordinal() - level.ordinal());
+            if (distance < bestDistance) {
+                bestSolution = solution;
+                bestGivens = givens;
+                bestDistance = distance;
+            }
+        }
+        return SudokuUtilities.toSudokuMatrix(bestGivens, bestSolution);
+    }
+
+    /**
+     * Builds a random complete grid.
+     *
+     * @return The 81 digits of a full valid grid.
+     */
+    public int[] randomSolution() {
+        int[] grid = new int[Board.CELL_COUNT];
+        int[] digits = {1, 2, 3, 4, 5, 6, 7, 8, 9};
+        for (int box = 0; box < 3; box++) {
+            shuffle(digits);
+            for (int i = 0; i < 9; i++) {
+                grid[Board.index(box * 3 + i / 3, box * 3 + i % 3)] = digits[i];
+            }
+        }
+        return solver.solve(grid);  // diagonal boxes never clash, so a solution always exists
+    }
+
+    /**
+     * Removes clues from a full grid while the solution stays unique.
+     *
+     * @param solution The full grid.
+     * @param target   The number of clues to stop at.
+     * @return The givens of the puzzle, zero for an empty cell.
+     */
+    private int[] removeClues(int[] solution, int target) {
+        int[] givens = solution.clone();
+        int[] order = new int[Board.CELL_COUNT / 2 + 1];    // one cell of every symmetric pair
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        shuffle(order);
+
+        int clues = Board.CELL_COUNT;
+        for (int i = 0; i < order.length && clues > target; i++) {
+            int cell = order[i];
+            int mirror = Board.CELL_COUNT - 1 - cell;
+            givens[cell] = 0;
+            givens[mirror] = 0;
+            if (solver.countSolutions(givens, 2) == 1) {
+                clues -= cell == mirror ? 1 : 2;
+            } else {
+                givens[cell] = solution[cell];
+                givens[mirror] = solution[mirror];
+            }
+        }
+        return givens;
+    }
+
+    private void shuffle(int[] values) {
+        for (int i = values.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = values[i];
+            values[i] = values[j];
+            values[j] = tmp;
+        }
+    }
+}
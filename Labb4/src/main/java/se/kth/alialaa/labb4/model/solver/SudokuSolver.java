@@ -0,0 +1,30 @@
+package se.kth.alialaa.labb4.model.solver;
+
+/**
+ * A Sudoku solving engine.
+ * Grids are int arrays of 81 digits in row order, zero for an empty cell, the same layout as
+ * {@link se.kth.alialaa.labb4.model.SudokuUtilities#convertStringToIntArray(String)} returns.
+ * Engines reuse their work arrays between solves, so an instance must not be shared between threads.
+ */
+public interface SudokuSolver {
+
+    /**
+     * Solves a grid.
+     *
+     * @param grid The 81 digits of the puzzle, zero for an empty cell. Not modified.
+     * @return The 81 digits of a solution, or null if the grid has no solution.
+     * @throws IllegalArgumentException If the grid does not have 81 digits between 0 and 9.
+     */
+    int[] solve(int[] grid);
+
+    /**
+     * Counts the solutions of a grid, stopping early at a limit.
+     * A limit of 2 is enough to tell whether a puzzle has a unique solution.
+     *
+     * @param grid  The 81 digits of the puzzle, zero for an empty cell. Not modified.
+     * @param limit The number of solutions after which counting stops.
+     * @return The number of solutions, at most limit.
+     * @throws IllegalArgumentException If the grid does not have 81 digits between 0 and 9.
+     */
+    int countSolutions(int[] grid, int limit);
+}
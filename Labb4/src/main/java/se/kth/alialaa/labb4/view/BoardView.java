@@ -0,0 +1,261 @@
+package se.kth.alialaa.labb4.view;
+
+import javafx.event.EventHandler;
+import javafx.scene.Node;
+import javafx.scene.Scene;
+import javafx.scene.input.KeyEvent;
+import se.kth.alialaa.labb4.controller.Controller;
+import se.kth.alialaa.labb4.model.Board;
+import se.kth.alialaa.labb4.model.CellListener;
+import se.kth.alialaa.labb4.model.CellSet;
+import se.kth.alialaa.labb4.model.Cells;
+
+import static se.kth.alialaa.labb4.model.SudokuUtilities.GRID_SIZE;
+
+/**
+ * The common part of the views showing a Sudoku grid: the selected square, the keyboard, and
+ * the set of cells to repaint. The view listens to the model and only repaints the cells that
+ * changed since the last update, plus the cells that were and are selected. A subclass decides
+ * how a cell is painted.
+ */
+public abstract class BoardView {
+    protected Cells model;
+    protected Controller controller;
+    protected int clickedRow, clickedCol;
+    private final CellListener cellListener = this::cellChanged;
+    private final CellSet dirtyCells;   // cells to repaint at the next updateView
+    private int shownSelection;         // the index of the cell painted as selected, or -1
+    private boolean showMistakes;       // right and wrong guesses are shown
+
+    /**
+     * Constructs a view of a model, with no square selected.
+     *
+     * @param model The model representing the Sudoku cells.
+     */
+    protected BoardView(Cells model) {
+        this.model = model;
+        this.dirtyCells = new CellSet();
+        this.shownSelection = -1;
+        this.clickedRow = -1;
+        this.clickedCol = -1;
+        model.addCellListener(cellListener);
+    }
+
+    /**
+     * Gets the node showing the grid, to add to the scene.
+     *
+     * @return The node showing the grid.
+     */
+    public abstract Node getNode();
+
+    /**
+     * Paints one cell of the grid from the model.
+     *
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     */
+    protected abstract void paintCell(int row, int col);
+
+    /**
+     * Sets the model shown. Every cell is repainted at the next update.
+     *
+     * @param model The new model to be set.
+     */
+    public void setModel(Cells model) {
+        if (this.model != null) {
+            this.model.removeCellListener(cellListener);
+        }
+        this.model = model;
+        if (model != null) {
+            model.addCellListener(cellListener);
+        }
+        markAllDirty();
+    }
+
+    /**
+     * Sets the controller for handling UI events.
+     *
+     * @param controller The controller to be set.
+     */
+    public void setController(Controller controller) {
+        this.controller = controller;
+    }
+
+    /**
+     * Gets the row index of the last clicked square.
+     *
+     * @return The row index of the last clicked square.
+     */
+    public int getClickedRow () {
+        return clickedRow;
+    }
+
+    /**
+     * Gets the column index of the last clicked square.
+     *
+     * @return The column index of the last clicked square.
+     */
+    public int getClickedCol() {
+        return clickedCol;
+    }
+
+    /**
+     * Validates whether the current clicked square coordinates are within the valid range (0-8).
+     *
+     * @return True if the clicked square coordinates are valid, false otherwise.
+     */
+    public boolean isValid() {
+        return getClickedRow()<=8 && getClickedRow()>=0 && getClickedCol()<=8 && getClickedCol()>=0;
+    }
+
+    /**
+     * Selects a square, which is shown at the next update. Coordinates outside the grid are moved to its edge.
+     *
+     * @param row The row of the square.
+     * @param col The column of the square.
+     */
+    public void select(int row, int col) {
+        clickedRow = Math.max(0, Math.min(GRID_SIZE - 1, row));
+        clickedCol = Math.max(0, Math.min(GRID_SIZE - 1, col));
+    }
+
+    /**
+     * Checks if a cell is the selected square.
+     *
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @return True if the cell is selected, false otherwise.
+     */
+    public boolean isSelected(int row, int col) {
+        return row == clickedRow && col == clickedCol;
+    }
+
+    /**
+     * Checks if a cell shares a row, column or box with the selected square.
+     *
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @return True if the cell is a peer of the selected square, false otherwise.
+     */
+    public boolean isPeerOfSelected(int row, int col) {
+        return isValid() && Board.isPeer(Board.index(row, col), Board.index(clickedRow, clickedCol));
+    }
+
+    /**
+     * Checks if right and wrong guesses are shown.
+     *
+     * @return True if the mistakes are shown, false otherwise.
+     */
+    public boolean isShowMistakes() {
+        return showMistakes;
+    }
+
+    /**
+     * Shows or hides which guesses are right and wrong, from the next update.
+     *
+     * @param showMistakes True to show the mistakes, false to hide them.
+     */
+    public void setShowMistakes(boolean showMistakes) {
+        if (this.showMistakes != showMistakes) {
+            this.showMistakes = showMistakes;
+            markAllDirty();
+        }
+    }
+
+    /**
+     * Updates the view of the Sudoku grid. Only the cells that changed since the last update are
+     * repainted, and the cells that were and are selected or peers of the selection.
+     */
+    public void updateView() {
+        if (model != null) {
+            int selection = isValid() ? Board.index(clickedRow, clickedCol) : -1;
+            if (selection != shownSelection) {
+                markWithPeers(shownSelection);
+                markWithPeers(selection);
+                shownSelection = selection;
+            }
+            for (int index = dirtyCells.next(0); index >= 0; index = dirtyCells.next(index + 1)) {
+                paintCell(Board.row(index), Board.col(index));
+            }
+            dirtyCells.clear();
+        }
+    }
+
+    /**
+     * Marks every cell for repainting at the next update.
+     */
+    protected void markAllDirty() {
+        for (int index = 0; index < Board.CELL_COUNT; index++) {
+            dirtyCells.add(index);
+        }
+    }
+
+    /**
+     * Marks a changed cell of the model for repainting at the next update. A peer that starts
+     * or stops conflicting with the cell is reported as changed by the model itself.
+     *
+     * @param index   The index of the cell.
+     * @param changes What changed, see {@link CellListener}.
+     */
+    protected void cellChanged(int index, int changes) {
+        dirtyCells.add(index);
+    }
+
+    private void markWithPeers(int index) {
+        if (index >= 0) {
+            dirtyCells.add(index);
+            for (int n = 0; n < Board.PEER_COUNT; n++) {
+                dirtyCells.add(Board.peer(index, n));
+            }
+        }
+    }
+
+    /**
+     * Adds a keyboard event handler to a scene: the arrow keys move the selection, 1-9 guess a
+     * number in the selected square and 0, Delete or Backspace clear it.
+     *
+     * @param scene The scene showing the grid.
+     */
+    public void addKeyHandler(Scene scene) {
+        EventHandler<KeyEvent> keyHandler = new EventHandler<KeyEvent>() {
+            @Override
+            public void handle(KeyEvent event) {
+                switch (event.getCode()) {
+                    case UP:
+                        moveSelection(-1, 0);
+                        break;
+                    case DOWN:
+                        moveSelection(1, 0);
+                        break;
+                    case LEFT:
+                        moveSelection(0, -1);
+                        break;
+                    case RIGHT:
+                        moveSelection(0, 1);
+                        break;
+                    case DELETE:
+                    case BACK_SPACE:
+                        controller.handleNumberTyped(0);
+                        break;
+                    default:
+                        String text = event.getText();
+                        if (text.length() != 1 || text.charAt(0) < '0' || text.charAt(0) > '9') {
+                            return;
+                        }
+                        controller.handleNumberTyped(text.charAt(0) - '0');
+                }
+                event.consume();
+            }
+        };
+        scene.addEventFilter(KeyEvent.KEY_PRESSED, keyHandler);
+    }
+
+    private void moveSelection(int rows, int cols) {
+        if (isValid()) {
+            select(clickedRow + rows, clickedCol + cols);
+        } else {
+            select(0, 0);
+        }
+        controller.requestRender();
+    }
+}
@@ -6,6 +6,7 @@ import javafx.event.EventHandler;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.Button;
+import javafx.scene.control.ToggleButton;
 import javafx.scene.layout.VBox;
 import se.kth.alialaa.labb4.controller.Controller;
 
@@ -13,7 +14,8 @@ import se.kth.alialaa.labb4.controller.Controller;
  * Represents a set of buttons for a Sudoku game.
  */
 public class Buttons {
-    private Button check, hint, clear;
+    private Button check, hint, smartHint, clear;
+    private ToggleButton notes;
     private Button[] numberedButton;
     private VBox leftVBox, rightVBox;
     private int selectedButton;
@@ -24,7 +26,7 @@ public class Buttons {
      */
     public Buttons() {
         initializeButtons();
-        this.leftVBox = new VBox(2, this.check, this.hint);
+        this.leftVBox = new VBox(2, this.check, this.hint, this.smartHint, this.notes);
         refineVbox(leftVBox);
         this.rightVBox = new VBox(2, numberedButton);
         this.rightVBox.getChildren().add(clear);
@@ -34,7 +36,7 @@ public class Buttons {
     }
 
     /**
-     * Gets the VBox containing the left buttons (Check and Hint).
+     * Gets the VBox containing the left buttons (Check, Hint, Smart Hint and Notes).
      *
      * @return The VBox containing the left buttons.
      */
@@ -74,11 +76,22 @@ public class Buttons {
     }
 
     /**
-     * Initializes the buttons (Check, Hint, Clear, Numbered buttons).
+     * Checks if the Notes button is down, so numbers are noted instead of guessed.
+     *
+     * @return True in notes mode, false otherwise.
+     */
+    public boolean isNotesMode() {
+        return notes.isSelected();
+    }
+
+    /**
+     * Initializes the buttons (Check, Hint, Smart Hint, Notes, Clear, Numbered buttons).
      */
     private void initializeButtons() {
         this.check = new Button("Check");
         this.hint = new Button("Hint");
+        this.smartHint = new Button("Smart Hint");
+        this.notes = new ToggleButton("Notes");
         this.clear = new Button("C");
         this.numberedButton = createNumberedButtons();
     }
@@ -111,7 +124,7 @@ public class Buttons {
     }
 
     /**
-     * Adds event handlers to the numbered buttons, clear button, check button, and hint button.
+     * Adds event handlers to the numbered buttons, clear button, check button, and hint buttons.
      */
     public void addEvenentHandler() {
         EventHandler numberedButtonHandler = new EventHandler<ActionEvent>() {
@@ -154,9 +167,18 @@ public class Buttons {
             @Override
             public void handle(ActionEvent actionEvent) {
                 controller.handleHint();
-                controller.result();
             }
         };
         hint.setOnAction(hintHandler);
+
+
+        EventHandler smartHintHandler = new  EventHandler<ActionEvent>() {
+
+            @Override
+            public void handle(ActionEvent actionEvent) {
+                controller.handleSmartHint();
+            }
+        };
+        smartHint.setOnAction(smartHintHandler);
     }
 }
@@ -0,0 +1,185 @@
+package se.kth.alialaa.labb4.view;
+
+import javafx.event.EventHandler;
+import javafx.geometry.VPos;
+import javafx.scene.Node;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+import javafx.scene.text.TextAlignment;
+import se.kth.alialaa.labb4.model.Cells;
+
+import static se.kth.alialaa.labb4.model.SudokuUtilities.*;
+
+/**
+ * Represents the view for a Sudoku grid drawn on a single Canvas, an alternative to
+ * {@link GridView} that keeps the scene graph to one node whatever the size of the grid.
+ * The digits are rendered once into images and copied onto the canvas, and an update only
+ * redraws the squares of the cells that changed.
+ */
+public class CanvasGridView extends BoardView {
+    private static final Color KNOWN_COLOR = Color.web("#f2f2f2");
+    private static final Color SELECTED_COLOR = Color.LIGHTBLUE;
+    private static final Color PEER_COLOR = Color.web("#eef4fb");
+    private static final Color CONFLICT_COLOR = Color.web("#ffd6d6");
+    private static final Color EMPTY_COLOR = Color.WHITE;
+    private static final Color LINE_COLOR = Color.BLACK;
+    private static final Color CORRECT_TEXT_COLOR = Color.web("#2e7d32");
+    private static final Color WRONG_TEXT_COLOR = Color.web("#c62828");
+    private static final Color NOTE_TEXT_COLOR = Color.web("#555555");
+    private static final double CELL_LINE_WIDTH = 0.5;
+    private static final double SECTION_LINE_WIDTH = 2.0;
+
+    private final Canvas canvas;
+    private final GraphicsContext graphics;
+    private final Image[] glyphs;       // the image of every digit, index 0 unused
+    private final Image[] correctGlyphs;
+    private final Image[] wrongGlyphs;
+    private final Image[] noteGlyphs;   // the small digits of the notes
+
+    /**
+     * Constructs a new CanvasGridView with the specified model and draws the whole grid.
+     *
+     * @param model The model representing the Sudoku cells.
+     */
+    public CanvasGridView(Cells model) {
+        super(model);
+        this.canvas = new Canvas(GRID_SIZE * CELL_SIZE, GRID_SIZE * CELL_SIZE);
+        this.graphics = canvas.getGraphicsContext2D();
+        Font font = Font.font("Monospaced", FontWeight.NORMAL, 20);
+        this.glyphs = renderGlyphs(font, LINE_COLOR, CELL_SIZE);
+        this.correctGlyphs = renderGlyphs(font, CORRECT_TEXT_COLOR, CELL_SIZE);
+        this.wrongGlyphs = renderGlyphs(font, WRONG_TEXT_COLOR, CELL_SIZE);
+        this.noteGlyphs = renderGlyphs(Font.font("Monospaced", FontWeight.NORMAL, 11), NOTE_TEXT_COLOR, CELL_SIZE / SECTION_SIZE);
+        addEventHandler();
+        markAllDirty();
+        updateView();
+    }
+
+    @Override
+    public Node getNode() {
+        return canvas;
+    }
+
+    /**
+     * Draws the square of one cell: the background, the digit or the notes, and the lines around it.
+     * Everything is drawn inside the square, so the neighbours are never touched.
+     *
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     */
+    @Override
+    protected void paintCell(int row, int col) {
+        double x = col * CELL_SIZE;
+        double y = row * CELL_SIZE;
+        graphics.setFill(backgroundColor(row, col));
+        graphics.fillRect(x, y, CELL_SIZE, CELL_SIZE);
+
+        int value = model.valueAt(row, col);
+        if (value != 0) {
+            Image glyph = !isShowMistakes() || model.isKnown(row, col) ? glyphs[value]
+                    : model.isWrong(row, col) ? wrongGlyphs[value] : correctGlyphs[value];
+            graphics.drawImage(glyph, x + (CELL_SIZE - glyph.getWidth()) / 2, y + (CELL_SIZE - glyph.getHeight()) / 2);
+        } else {
+            drawNotes(model.notesAt(row, col), x, y);
+        }
+
+        graphics.setStroke(LINE_COLOR);
+        graphics.setLineWidth(CELL_LINE_WIDTH);
+        graphics.strokeRect(x + CELL_LINE_WIDTH / 2, y + CELL_LINE_WIDTH / 2,
+                CELL_SIZE - CELL_LINE_WIDTH, CELL_SIZE - CELL_LINE_WIDTH);
+        graphics.setFill(LINE_COLOR);
+        if (row % SECTION_SIZE == 0) {
+            graphics.fillRect(x, y, CELL_SIZE, SECTION_LINE_WIDTH / 2);
+        }
+        if (row % SECTION_SIZE == SECTION_SIZE - 1) {
+            graphics.fillRect(x, y + CELL_SIZE - SECTION_LINE_WIDTH / 2, CELL_SIZE, SECTION_LINE_WIDTH / 2);
+        }
+        if (col % SECTION_SIZE == 0) {
+            graphics.fillRect(x, y, SECTION_LINE_WIDTH / 2, CELL_SIZE);
+        }
+        if (col % SECTION_SIZE == SECTION_SIZE - 1) {
+            graphics.fillRect(x + CELL_SIZE - SECTION_LINE_WIDTH / 2, y, SECTION_LINE_WIDTH / 2, CELL_SIZE);
+        }
+    }
+
+    /**
+     * Draws the notes of an empty square as a 3x3 grid of small digits, digit d in the same place as cell d of a box.
+     */
+    private void drawNotes(int notes, double x, double y) {
+        double noteSize = (double) CELL_SIZE / SECTION_SIZE;
+        while (notes != 0) {
+            int digit = Integer.numberOfTrailingZeros(notes) + 1;
+            notes &= notes - 1;
+            Image glyph = noteGlyphs[digit];
+            double centerX = x + ((digit - 1) % SECTION_SIZE + 0.5) * noteSize;
+            double centerY = y + ((digit - 1) / SECTION_SIZE + 0.5) * noteSize;
+            graphics.drawImage(glyph, centerX - glyph.getWidth() / 2, centerY - glyph.getHeight() / 2);
+        }
+    }
+
+    /**
+     * Gets the background of a square, in the same order of precedence as the rules of sudoku.css.
+     */
+    private Color backgroundColor(int row, int col) {
+        if (isSelected(row, col)) {
+            return SELECTED_COLOR;
+        }
+        if (model.isConflict(row, col)) {
+            return CONFLICT_COLOR;
+        }
+        if (model.isKnown(row, col)) {
+            return KNOWN_COLOR;
+        }
+        return isPeerOfSelected(row, col) ? PEER_COLOR : EMPTY_COLOR;
+    }
+
+    /**
+     * Adds a mouse click event handler to the canvas. The square is computed from the position of the click.
+     */
+    public void addEventHandler() {
+        EventHandler<MouseEvent> clickHandler = new EventHandler<MouseEvent>() {
+            @Override
+            public void handle(MouseEvent event) {
+                int row = (int) (event.getY() / CELL_SIZE);
+                int col = (int) (event.getX() / CELL_SIZE);
+                if (row >= 0 && row < GRID_SIZE && col >= 0 && col < GRID_SIZE) {
+                    controller.handleSquareClicked(row, col);
+                }
+            }
+        };
+        canvas.setOnMouseClicked(clickHandler);
+    }
+
+    /**
+     * Renders the digits 1-9 into images with a transparent background.
+     *
+     * @param font  The font of the digits.
+     * @param color The color of the digits.
+     * @param size  The width and height of the images, with the digit in the middle.
+     * @return An array of images, indexed by digit.
+     */
+    private static Image[] renderGlyphs(Font font, Color color, int size) {
+        Canvas scratch = new Canvas(size, size);
+        GraphicsContext context = scratch.getGraphicsContext2D();
+        context.setFont(font);
+        context.setFill(color);
+        context.setTextAlign(TextAlignment.CENTER);
+        context.setTextBaseline(VPos.CENTER);
+        SnapshotParameters parameters = new SnapshotParameters();
+        parameters.setFill(Color.TRANSPARENT);
+
+        Image[] glyphs = new Image[GRID_SIZE + 1];
+        for (int digit = 1; digit <= GRID_SIZE; digit++) {
+            context.clearRect(0, 0, size, size);
+            context.fillText(String.valueOf(digit), size / 2.0, size / 2.0);
+            glyphs[digit] = scratch.snapshot(parameters, null);
+        }
+        return glyphs;
+    }
+}
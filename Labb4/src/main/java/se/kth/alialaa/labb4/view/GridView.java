@@ -1,27 +1,37 @@
 package se.kth.alialaa.labb4.view;
 
 import javafx.event.EventHandler;
+import javafx.css.PseudoClass;
 import javafx.geometry.Pos;
+import javafx.scene.Node;
 import javafx.scene.control.Label;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.TilePane;
-import javafx.scene.text.Font;
-import javafx.scene.text.FontWeight;
-import se.kth.alialaa.labb4.controller.Controller;
-import se.kth.alialaa.labb4.model.CellState;
+import se.kth.alialaa.labb4.model.Board;
 import se.kth.alialaa.labb4.model.Cells;
 
 import static se.kth.alialaa.labb4.model.SudokuUtilities.*;
 
 /**
- * Represents the view for a Sudoku grid in the UI.
+ * Represents the view for a Sudoku grid in the UI, a Label for every cell.
+ * The look of the tiles is set by the stylesheet sudoku.css: painting a tile only switches its
+ * pseudo-classes, so no style strings are built or parsed.
  */
-public class GridView {
-    private Cells model;
+public class GridView extends BoardView {
+    private static final String[] DISPLAY_VALUES = {"", "1", "2", "3", "4", "5", "6", "7", "8", "9"};
+    private static final String STYLESHEET = GridView.class.getResource("sudoku.css").toExternalForm();
+    private static final String SHOW_MISTAKES = "show-mistakes";
+    private static final PseudoClass GIVEN = PseudoClass.getPseudoClass("given");
+    private static final PseudoClass SELECTED = PseudoClass.getPseudoClass("selected");
+    private static final PseudoClass PEER = PseudoClass.getPseudoClass("peer");
+    private static final PseudoClass CONFLICT = PseudoClass.getPseudoClass("conflict");
+    private static final PseudoClass CORRECT = PseudoClass.getPseudoClass("correct");
+    private static final PseudoClass WRONG = PseudoClass.getPseudoClass("wrong");
+    private static final PseudoClass NOTES = PseudoClass.getPseudoClass("notes");
+    private static final String[] NOTE_TEXTS = makeNoteTexts();
+
     private Label[][] numberTiles; // the tiles/squares to show in the ui grid
     private TilePane numberPane;
-    private int clickedRow, clickedCol;
-    private Controller controller;
 
     /**
      * Constructs a new GridView with the specified model.
@@ -29,25 +39,13 @@ public class GridView {
      * @param model The model representing the Sudoku cells.
      */
     public GridView(Cells model) {
-        this.model = model;
+        super(model);
         numberTiles = new Label[GRID_SIZE][GRID_SIZE];
         initNumberTiles();
         numberPane = makeNumberPane();
-        this.clickedRow = -1;
-        this.clickedCol = -1;
         addEventHandler();
     }
 
-    /**
-     * Sets the model for the GridView.
-     *
-     * @param model The new model to be set.
-     */
-    public void setModel(Cells model) {
-        this.model = model;
-    }
-
-
     /**
      * Gets the TilePane containing the Sudoku grid.
      *
@@ -57,53 +55,28 @@ public class GridView {
         return numberPane;
     }
 
-    /**
-     * Gets the row index of the last clicked square.
-     *
-     * @return The row index of the last clicked square.
-     */
-    public int getClickedRow () {
-        return clickedRow;
-    }
-
-    /**
-     * Gets the column index of the last clicked square.
-     *
-     * @return The column index of the last clicked square.
-     */
-    public int getClickedCol() {
-        return clickedCol;
-    }
-
-    /**
-     * Sets the controller for handling UI events.
-     *
-     * @param controller The controller to be set.
-     */
-    public void setController(Controller controller) {
-        this.controller = controller;
+    @Override
+    public Node getNode() {
+        return numberPane;
     }
 
-
     // ... (rest of the existing methods)
 
     /**
      * Initializes the number tiles based on the model.
      */
     private final void initNumberTiles() {
-        Font font = Font.font("Monospaced", FontWeight.NORMAL, 20);
         int displayValue;
         for (int row = 0; row < GRID_SIZE; row++) {
             for (int col = 0; col < GRID_SIZE; col++) {
-                displayValue = model.getCells()[row][col].getTheGuess();
+                displayValue = model.valueAt(row, col);
                 String displayValueStr = (displayValue !=0 ) ? String.valueOf(displayValue) : " ";
                 Label tile = new Label(displayValueStr); // data from model
                 tile.setPrefWidth(CELL_SIZE);
                 tile.setPrefHeight(CELL_SIZE);
-                tile.setFont(font);
                 tile.setAlignment(Pos.CENTER);
-                tile.setStyle("-fx-border-color: black; -fx-border-width: 0.5px; -fx-background-color:"
-                        + (model.getCells()[row][col].getCellState().equals(CellState.KNOWN)? "#f2f2f2" : "white"+ ";")); // css style
+                tile.getStyleClass().add("tile"); // css style
+                tile.pseudoClassStateChanged(GIVEN, model.isKnown(row, col));
                 // add new tile to grid
                 numberTiles[row][col] = tile;
             }
@@ -120,8 +93,8 @@ public class GridView {
         TilePane root = new TilePane();
         root.setPrefColumns(SECTIONS_PER_ROW);
         root.setPrefRows(SECTIONS_PER_ROW);
-        root.setStyle(
-                "-fx-border-color: black; -fx-border-width: 1.0px; -fx-background-color: white;");
+        root.getStylesheets().add(STYLESHEET);
+        root.getStyleClass().add("grid");
 
         // create the 3*3 sections and add the number tiles
         TilePane[][] sections = new TilePane[SECTIONS_PER_ROW][SECTIONS_PER_ROW];
@@ -131,7 +104,7 @@ public class GridView {
                 TilePane section = new TilePane();
                 section.setPrefColumns(SECTION_SIZE);
                 section.setPrefRows(SECTION_SIZE);
-                section.setStyle( "-fx-border-color: black; -fx-border-width: 0.5px;");
+                section.getStyleClass().add("section");
 
                 // add number tiles to this section
                 for (int row = 0; row < SECTION_SIZE; row++) {
@@ -150,66 +123,76 @@ public class GridView {
     }
 
     /**
-     * Updates the background color of the Sudoku grid based on the model and user interactions.
+     * Shows or hides which guesses are right and wrong, by a style class on the grid.
+     *
+     * @param showMistakes True to show the mistakes, false to hide them.
      */
-    public void updateColor() {
-        for (int row=0; row<GRID_SIZE; row++) {
-            for (int col=0; col<GRID_SIZE; col++) {
-                numberTiles[row][col].setStyle("-fx-border-color: black; -fx-border-width: 0.5px; -fx-background-color:" +
-                        (model.getCells()[row][col].getCellState().equals(CellState.KNOWN) ? "#f2f2f2" :
-                                (row == clickedRow && col == clickedCol && !model.getCells()[row][col].getCellState().equals(CellState.KNOWN) ? "lightblue" : "white") + ";"));
-            }
+    @Override
+    public void setShowMistakes(boolean showMistakes) {
+        numberPane.getStyleClass().remove(SHOW_MISTAKES);
+        if (showMistakes) {
+            numberPane.getStyleClass().add(SHOW_MISTAKES);
         }
+        super.setShowMistakes(showMistakes);
     }
 
     /**
-     * Updates the view of the Sudoku grid.
+     * Shows the number of a cell, or its notes as a 3x3 grid of small numbers when it is empty.
      */
-    public void updateView() {
-        if (model != null) {
-            String displayValue;
-            for (int row = 0; row < GRID_SIZE; row++) {
-                for (int col = 0; col < GRID_SIZE; col++) {
-                    displayValue = (model.getCells()[row][col].getTheGuess() != 0) ? String.valueOf(model.getCells()[row][col].getTheGuess()) : "";
-                    numberTiles[row][col].setText(displayValue);
-                }
-            }
-            updateColor();
-        }
+    @Override
+    protected void paintCell(int row, int col) {
+        Label tile = numberTiles[row][col];
+        int value = model.valueAt(row, col);
+        int notes = value == 0 ? model.notesAt(row, col) : 0;
+        tile.setText(notes != 0 ? NOTE_TEXTS[notes] : DISPLAY_VALUES[value]);
+        tile.pseudoClassStateChanged(NOTES, notes != 0);
+        paintColor(row, col);
     }
 
     /**
-     * Validates whether the current clicked square coordinates are within the valid range (0-8).
+     * Makes the text of every set of notes, three lines of three numbers with a space for a number not noted.
      *
-     * @return True if the clicked square coordinates are valid, false otherwise.
+     * @return The texts, indexed by the 9-bit mask of the notes.
      */
-    public boolean isValid() {
-        return getClickedRow()<=8 && getClickedRow()>=0 && getClickedCol()<=8 && getClickedCol()>=0;
+    private static String[] makeNoteTexts() {
+        String[] texts = new String[1 << GRID_SIZE];
+        char[] chars = new char[SECTION_SIZE * (2 * SECTION_SIZE)];
+        for (int mask = 0; mask < texts.length; mask++) {
+            int n = 0;
+            for (int digit = 1; digit <= GRID_SIZE; digit++) {
+                chars[n++] = (mask & 1 << (digit - 1)) != 0 ? (char) ('0' + digit) : ' ';
+                chars[n++] = digit % SECTION_SIZE == 0 ? '\n' : ' ';
+            }
+            texts[mask] = new String(chars, 0, n - 1);
+        }
+        return texts;
+    }
+
+    private void paintColor(int row, int col) {
+        Label tile = numberTiles[row][col];
+        tile.pseudoClassStateChanged(GIVEN, model.isKnown(row, col));
+        tile.pseudoClassStateChanged(SELECTED, isSelected(row, col));
+        tile.pseudoClassStateChanged(PEER, isPeerOfSelected(row, col));
+        tile.pseudoClassStateChanged(CONFLICT, model.isConflict(row, col));
+        tile.pseudoClassStateChanged(CORRECT, model.valueAt(row, col) != 0 && !model.isWrong(row, col) && !model.isKnown(row, col));
+        tile.pseudoClassStateChanged(WRONG, model.isWrong(row, col));
     }
 
     /**
-     * Adds a mouse click event handler for the Sudoku grid squares.
+     * Adds a mouse click event handler for the Sudoku grid squares. Every tile knows its own
+     * cell index, so a click is resolved without searching the grid.
      */
     public void addEventHandler() {
          EventHandler tileClickHandler = new EventHandler<MouseEvent>() {
             @Override
             public void handle(MouseEvent event) {
-                for (int row=0; row <GRID_SIZE; row++) {
-                    for (int col=0; col<GRID_SIZE; col++) {
-                        if(event.getSource() == numberTiles[row][col]) {
-                            clickedRow = row;
-                            clickedCol = col;
-                            controller.handleTheChosenSquare();
-                            controller.handleGuess();
-                            controller.result();
-                            controller.handleClear();
-                        }
-                    }
-                }
+                int index = (Integer) ((Node) event.getSource()).getUserData();
+                controller.handleSquareClicked(Board.row(index), Board.col(index));
             }
         };
          for (int row=0; row<GRID_SIZE; row++) {
              for(int col=0; col<GRID_SIZE; col++) {
+                 numberTiles[row][col].setUserData(Board.index(row, col));
                  numberTiles[row][col].setOnMouseClicked(tileClickHandler); // add your custom event handler
              }
          }
@@ -4,6 +4,7 @@ import javafx.event.ActionEvent;
 import javafx.event.Event;
 import javafx.event.EventHandler;
 import javafx.scene.control.Alert;
+import javafx.scene.control.CheckMenuItem;
 import javafx.scene.control.Menu;
 import javafx.scene.control.MenuBar;
 import javafx.scene.control.MenuItem;
@@ -22,7 +23,8 @@ public class MenuView {
     private Menu fileMenu, gameMenu, helpMenu, newLevel;
     private MenuBar menuBar;
     private MenuItem newGame, easy, medium, hard;
-    private MenuItem exit, saveGame, loadGame, info, check, clear;
+    private MenuItem exit, saveGame, loadGame, info, check, clear, explain, solve;
+    private CheckMenuItem autoNotes;
     private Controller controller;
 
     /**
@@ -72,11 +74,14 @@ public class MenuView {
         this.info = createMenuItem("Info");
         this.check = createMenuItem("Check");
         this.clear = createMenuItem("Clear");
+        this.explain = createMenuItem("Explain Next Move");
+        this.solve = createMenuItem("Solve Step by Step");
+        this.autoNotes = new CheckMenuItem("Auto Notes");
 
         this.fileMenu.getItems().addAll(this.loadGame, this.saveGame, this.exit);
         this.newLevel.getItems().addAll(this.easy, this.medium, this.hard);
-        this.gameMenu.getItems().addAll(this.newGame, this.newLevel);
-        this.helpMenu.getItems().addAll(this.info,this.check, this.clear);
+        this.gameMenu.getItems().addAll(this.newGame, this.newLevel, this.autoNotes);
+        this.helpMenu.getItems().addAll(this.info,this.check, this.clear, this.explain, this.solve);
         this.menuBar.getMenus().addAll(this.fileMenu, this.gameMenu, this.helpMenu);
     }
 
@@ -100,6 +105,27 @@ public class MenuView {
         return null;
     }
 
+    /**
+     * Shows that a file operation is running: the file menu shows the status and saving and
+     * loading are disabled until {@link #setIdle()} is called.
+     *
+     * @param status The text describing the running operation, for example "Saving...".
+     */
+    public void setBusy(String status) {
+        fileMenu.setText("File - " + status);
+        saveGame.setDisable(true);
+        loadGame.setDisable(true);
+    }
+
+    /**
+     * Shows that no file operation is running and enables saving and loading again.
+     */
+    public void setIdle() {
+        fileMenu.setText("File");
+        saveGame.setDisable(false);
+        loadGame.setDisable(false);
+    }
+
     /**
      * Creates and returns an information alert window with the specified header text and title.
      *
@@ -200,6 +226,30 @@ public class MenuView {
         };
         clear.setOnAction(clearAllHandler);
 
+        EventHandler explainHandler = new EventHandler<ActionEvent>() {
+            @Override
+            public void handle(ActionEvent event) {
+                controller.handleExplainMove();
+            }
+        };
+        explain.setOnAction(explainHandler);
+
+        EventHandler solveHandler = new EventHandler<ActionEvent>() {
+            @Override
+            public void handle(ActionEvent event) {
+                controller.handleAnimatedSolve();
+            }
+        };
+        solve.setOnAction(solveHandler);
+
+        EventHandler autoNotesHandler = new EventHandler<ActionEvent>() {
+            @Override
+            public void handle(ActionEvent event) {
+                controller.handleAutoNotes(autoNotes.isSelected());
+            }
+        };
+        autoNotes.setOnAction(autoNotesHandler);
+
         EventHandler saveGameHandler = new EventHandler<ActionEvent>() {
             @Override
             public void handle(ActionEvent event) {
@@ -0,0 +1,106 @@
+package se.kth.alialaa.labb4.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests autosaving moves to the journal and restoring the game from it.
+ */
+class MoveJournalTest {
+    private static final String SNAPSHOT_FILE = "autosave.snapshot";
+    private static final String JOURNAL_FILE = "autosave.journal";
+    private static final int HEADER_SIZE = 8;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void nothingIsRestoredWithoutAnAutosave() throws IOException {
+        assertNull(MoveJournal.restore(tempDir));
+    }
+
+    @Test
+    void movesAreRestoredOntoTheSnapshot() throws IOException {
+        Cells model = new Cells(SudokuUtilities.SudokuLevel.EASY);
+        int first = firstEmptyCell(model, 0);
+        int second = firstEmptyCell(model, first + 1);
+
+        try (MoveJournal journal = new MoveJournal(tempDir)) {
+            journal.attach(model);
+            model.guess(Board.row(first), Board.col(first), 4);
+            model.guess(Board.row(second), Board.col(second), 7);
+            model.clear(Board.row(first), Board.col(first));
+        }
+
+        assertEquals(HEADER_SIZE + 3 * 2, Files.size(tempDir.resolve(JOURNAL_FILE)));
+        Cells restored = MoveJournal.restore(tempDir);
+        assertEquals(model.toString(), restored.toString());
+        assertEquals(0, restored.valueAt(Board.row(first), Board.col(first)));
+        assertEquals(7, restored.valueAt(Board.row(second), Board.col(second)));
+    }
+
+    @Test
+    void journalIsFoldedIntoANewSnapshot() throws IOException {
+        Cells model = new Cells(SudokuUtilities.SudokuLevel.MEDIUM);
+        int cell = firstEmptyCell(model, 0);
+
+        try (MoveJournal journal = new MoveJournal(tempDir)) {
+            journal.attach(model);
+            for (int move = 0; move < MoveJournal.COMPACT_AFTER + 5; move++) {
+                model.guess(Board.row(cell), Board.col(cell), move % 9 + 1);
+            }
+        }
+
+        assertTrue(Files.size(tempDir.resolve(JOURNAL_FILE)) < HEADER_SIZE + 2L * MoveJournal.COMPACT_AFTER);
+        assertEquals(model.toString(), MoveJournal.restore(tempDir).toString());
+    }
+
+    @Test
+    void moveCutShortIsIgnored() throws IOException {
+        Cells model = new Cells(SudokuUtilities.SudokuLevel.EASY);
+        int cell = firstEmptyCell(model, 0);
+        try (MoveJournal journal = new MoveJournal(tempDir)) {
+            journal.attach(model);
+            model.guess(Board.row(cell), Board.col(cell), 5);
+        }
+
+        Files.write(tempDir.resolve(JOURNAL_FILE), new byte[]{0x01}, StandardOpenOption.APPEND);
+
+        assertEquals(model.toString(), MoveJournal.restore(tempDir).toString());
+    }
+
+    @Test
+    void journalOfAnotherSnapshotIsNotReplayed() throws IOException {
+        Cells model = new Cells(SudokuUtilities.SudokuLevel.EASY);
+        int cell = firstEmptyCell(model, 0);
+        try (MoveJournal journal = new MoveJournal(tempDir)) {
+            journal.attach(model);
+            model.guess(Board.row(cell), Board.col(cell), 5);
+        }
+        Cells other = new Cells(SudokuUtilities.SudokuLevel.HARD);
+
+        ByteBuffer snapshot = SudokuIO.encode(other);
+        byte[] bytes = new byte[snapshot.remaining()];
+        snapshot.get(bytes);
+        Files.write(tempDir.resolve(SNAPSHOT_FILE), bytes);
+
+        assertEquals(other.toString(), MoveJournal.restore(tempDir).toString());
+    }
+
+    private static int firstEmptyCell(Cells model, int from) {
+        for (int index = from; index < Board.CELL_COUNT; index++) {
+            if (!model.getBoard().isGiven(index)) {
+                return index;
+            }
+        }
+        throw new IllegalStateException("no empty cell after " + from);
+    }
+}
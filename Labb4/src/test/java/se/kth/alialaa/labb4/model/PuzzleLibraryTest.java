@@ -0,0 +1,118 @@
+package se.kth.alialaa.labb4.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import se.kth.alialaa.labb4.model.SudokuUtilities.SudokuLevel;
+import se.kth.alialaa.labb4.model.solver.DifficultyRater;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests building, writing and reading the binary puzzle library.
+ */
+class PuzzleLibraryTest {
+    private static final String SOLVED =
+            "534678912672195348198342567859761423426853791713924856961537284287419635345286179";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void writtenPuzzlesAreReadBackByLevelAndRating() throws IOException {
+        int[] solution = SudokuUtilities.convertStringToIntArray(SOLVED);
+        PuzzleLibrary.Builder builder = new PuzzleLibrary.Builder()
+                .add(givens(solution, 3), solution, 300, SudokuLevel.HARD)
+                .add(givens(solution, 1), solution, 100, SudokuLevel.MEDIUM)
+                .add(givens(solution, 2), solution, 200, SudokuLevel.HARD)
+                .add(givens(solution, 4), solution, 70000, SudokuLevel.HARD);
+        Path file = tempDir.resolve("puzzles.lib");
+
+        builder.write(file);
+        PuzzleLibrary library = PuzzleLibrary.open(file);
+
+        assertEquals(PuzzleLibrary.HEADER_SIZE + 4 * PuzzleLibrary.RECORD_SIZE, Files.size(file));
+        assertEquals(4, library.size());
+        assertEquals(0, library.size(SudokuLevel.EASY));
+        assertEquals(1, library.size(SudokuLevel.MEDIUM));
+        assertEquals(3, library.size(SudokuLevel.HARD));
+        assertNull(library.random(SudokuLevel.EASY, new Random(1)));
+
+        // the hard puzzles are sorted by rating, and the rating is clamped to an unsigned short
+        assertEquals(SudokuLevel.MEDIUM, library.level(0));
+        assertEquals(100, library.rating(0));
+        assertEquals(200, library.rating(1));
+        assertEquals(300, library.rating(2));
+        assertEquals(0xFFFF, library.rating(3));
+        assertEquals(1, library.firstWithRating(SudokuLevel.HARD, 250));
+        assertEquals(3, library.firstWithRating(SudokuLevel.HARD, 0x10000));
+
+        int[] readGivens = new int[Board.CELL_COUNT];
+        int[] readSolution = new int[Board.CELL_COUNT];
+        library.get(1, readGivens, readSolution);
+        assertArrayEquals(givens(solution, 2), readGivens);
+        assertArrayEquals(solution, readSolution);
+        int[][][] matrix = library.get(SudokuLevel.HARD, 2);
+        assertEquals(solution[80], matrix[8][8][1]);
+        assertThrows(IndexOutOfBoundsException.class, () -> library.get(SudokuLevel.MEDIUM, 1));
+        assertThrows(IndexOutOfBoundsException.class, () -> library.rating(4));
+    }
+
+    @Test
+    void addedPuzzlesAreRated() throws IOException {
+        int[] solution = SudokuUtilities.convertStringToIntArray(SOLVED);
+        Path file = tempDir.resolve("rated.lib");
+
+        new PuzzleLibrary.Builder().add(givens(solution, 2), solution).write(file);
+        PuzzleLibrary library = PuzzleLibrary.open(file);
+        DifficultyRater.Rating rating = new DifficultyRater().rate(givens(solution, 2));
+
+        assertEquals(rating.level(), library.level(0));
+        assertEquals(rating.score(), library.rating(0));
+    }
+
+    @Test
+    void givensNotMatchingTheSolutionAreRejected() {
+        int[] solution = SudokuUtilities.convertStringToIntArray(SOLVED);
+        int[] givens = givens(solution, 2);
+        givens[0] = solution[0] % 9 + 1;
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new PuzzleLibrary.Builder().add(givens, solution, 0, SudokuLevel.EASY));
+        assertThrows(IllegalArgumentException.class,
+                () -> new PuzzleLibrary.Builder().add(new int[80], solution, 0, SudokuLevel.EASY));
+    }
+
+    @Test
+    void filesThatAreNotLibrariesAreRejected() throws IOException {
+        Path empty = Files.write(tempDir.resolve("empty.lib"), new byte[0]);
+        Path foreign = Files.write(tempDir.resolve("foreign.lib"), new byte[PuzzleLibrary.HEADER_SIZE]);
+        Path truncated = tempDir.resolve("truncated.lib");
+        int[] solution = SudokuUtilities.convertStringToIntArray(SOLVED);
+        new PuzzleLibrary.Builder().add(givens(solution, 2), solution, 0, SudokuLevel.EASY).write(truncated);
+        byte[] bytes = Files.readAllBytes(truncated);
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 1));
+
+        assertThrows(IOException.class, () -> PuzzleLibrary.open(empty));
+        assertThrows(IOException.class, () -> PuzzleLibrary.open(foreign));
+        assertThrows(IOException.class, () -> PuzzleLibrary.open(truncated));
+    }
+
+    /**
+     * Empties every cell of a solution whose index is not a multiple of a step.
+     */
+    private static int[] givens(int[] solution, int step) {
+        int[] givens = solution.clone();
+        for (int index = 0; index < Board.CELL_COUNT; index++) {
+            if (index % step != 0) {
+                givens[index] = 0;
+            }
+        }
+        return givens;
+    }
+}
@@ -0,0 +1,102 @@
+package se.kth.alialaa.labb4.model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import se.kth.alialaa.labb4.model.SudokuUtilities.SudokuLevel;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests taking puzzles from the pool and refilling it in the background.
+ */
+class PuzzlePoolTest {
+    private PuzzlePool pool;
+
+    @AfterEach
+    void shutdownPool() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void badSizesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new PuzzlePool(0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new PuzzlePool(4, 4));
+        assertThrows(IllegalArgumentException.class, () -> new PuzzlePool(4, -1));
+    }
+
+    @Test
+    void readyPoolServesPregeneratedPuzzles() throws InterruptedException {
+        pool = new PuzzlePool(3, 1);
+        assertTrue(pool.awaitReady(30, TimeUnit.SECONDS));
+        awaitFull(SudokuLevel.EASY, 3);
+
+        assertValidPuzzle(pool.take(SudokuLevel.EASY));
+
+        assertEquals(1, pool.getHits());
+        assertEquals(0, pool.getMisses());
+        assertEquals(1.0, pool.getHitRate());
+    }
+
+    @Test
+    void levelIsRefilledAfterDroppingToTheLowWaterMark() throws InterruptedException {
+        pool = new PuzzlePool(3, 1);
+        assertTrue(pool.awaitReady(30, TimeUnit.SECONDS));
+        awaitFull(SudokuLevel.MEDIUM, 3);
+
+        for (int i = 0; i < 3; i++) {
+            assertValidPuzzle(pool.take(SudokuLevel.MEDIUM));
+        }
+
+        awaitFull(SudokuLevel.MEDIUM, 3);
+    }
+
+    @Test
+    void emptyLevelServesTransformsOfTheLastPuzzle() throws InterruptedException {
+        pool = new PuzzlePool(2, 0);
+        assertTrue(pool.awaitReady(30, TimeUnit.SECONDS));
+        pool.shutdown();
+
+        for (int i = 0; i < 5; i++) {
+            assertValidPuzzle(pool.take(SudokuLevel.HARD));
+        }
+
+        assertTrue(pool.getMisses() >= 3, pool.toString());
+        assertEquals(5, pool.getHits() + pool.getMisses());
+    }
+
+    private void awaitFull(SudokuLevel level, int capacity) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (pool.available(level) < capacity) {
+            assertTrue(System.nanoTime() < deadline, "level " + level + " not refilled: " + pool);
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Checks that a puzzle has a valid solution which keeps its givens.
+     */
+    private static void assertValidPuzzle(int[][][] puzzle) {
+        int size = SudokuUtilities.GRID_SIZE;
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                int given = puzzle[row][col][0];
+                assertTrue(given == 0 || given == puzzle[row][col][1], "given at " + row + ", " + col);
+            }
+        }
+        for (int unit = 0; unit < size; unit++) {
+            int rows = 0, cols = 0, boxes = 0;
+            for (int n = 0; n < size; n++) {
+                rows |= Board.bit(puzzle[unit][n][1]);
+                cols |= Board.bit(puzzle[n][unit][1]);
+                boxes |= Board.bit(puzzle[unit / 3 * 3 + n / 3][unit % 3 * 3 + n % 3][1]);
+            }
+            assertEquals(Board.ALL_DIGITS, rows, "row " + unit);
+            assertEquals(Board.ALL_DIGITS, cols, "column " + unit);
+            assertEquals(Board.ALL_DIGITS, boxes, "box " + unit);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package se.kth.alialaa.labb4.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the canonical form of grids and the index of puzzles keyed on it.
+ */
+class SudokuCanonicalizerTest {
+    private static final String SOLVED =
+            "534678912672195348198342567859761423426853791713924856961537284287419635345286179";
+    private static final String PUZZLE =
+            "800000000003600000070090200050007000000045700000100030001000068008500010090000400";
+
+    @Test
+    void symmetricCopiesHaveTheSameCanonicalForm() {
+        Random random = new Random(4);
+        for (String grid : new String[]{PUZZLE, SOLVED}) {
+            int[] values = SudokuUtilities.convertStringToIntArray(grid);
+            int[] canonical = SudokuCanonicalizer.canonicalize(values);
+            for (int i = 0; i < 20; i++) {
+                int[] copy = SudokuTransform.random(random).apply(values);
+
+                assertArrayEquals(canonical, SudokuCanonicalizer.canonicalize(copy), grid);
+            }
+            assertArrayEquals(canonical, SudokuCanonicalizer.canonicalTransform(values).apply(values));
+        }
+    }
+
+    @Test
+    void canonicalFormIsTheSmallestCopy() {
+        int[] values = SudokuUtilities.convertStringToIntArray(PUZZLE);
+        String canonical = SudokuCanonicalizer.canonicalString(PUZZLE);
+        Random random = new Random(5);
+        for (int i = 0; i < 100; i++) {
+            String copy = SudokuUtilities.convertIntArrayToString(SudokuTransform.random(random).apply(values));
+
+            assertTrue(canonical.compareTo(copy) <= 0, copy);
+        }
+    }
+
+    @Test
+    void emptyGridIsCanonicalizedQuickly() {
+        int[] canonical = assertTimeout(Duration.ofSeconds(5), () -> SudokuCanonicalizer.canonicalize(new int[81]));
+
+        assertArrayEquals(new int[81], canonical);
+    }
+
+    @Test
+    void gridWithOneClueIsCanonicalizedQuickly() {
+        int[] grid = new int[81];
+        grid[40] = 7;
+        int[] expected = new int[81];
+        expected[80] = 1;
+
+        for (int index = 0; index < 81; index += 10) {
+            int[] moved = new int[81];
+            moved[index] = 3;
+
+            assertTimeout(Duration.ofSeconds(5), () -> assertArrayEquals(expected, SudokuCanonicalizer.canonicalize(moved)));
+        }
+        assertArrayEquals(expected, SudokuCanonicalizer.canonicalize(grid));
+    }
+
+    @Test
+    void differentPuzzlesHaveDifferentKeys() {
+        int[] puzzle = SudokuUtilities.convertStringToIntArray(PUZZLE);
+        int[] other = puzzle.clone();
+        other[0] = 0;
+
+        assertNotEquals(PuzzleIndex.key(puzzle), PuzzleIndex.key(other));
+        assertEquals(PuzzleIndex.key(puzzle), PuzzleIndex.key(SudokuTransform.random(new Random(6)).apply(puzzle)));
+        assertEquals(SudokuCanonicalizer.canonicalString(PUZZLE), PuzzleIndex.key(puzzle).toString());
+    }
+
+    @Test
+    void indexFindsSymmetricCopies() {
+        PuzzleIndex<String> index = new PuzzleIndex<>();
+        int[] puzzle = SudokuUtilities.convertStringToIntArray(PUZZLE);
+        int[] copy = SudokuTransform.random(new Random(7)).apply(puzzle);
+
+        assertTrue(index.add(PUZZLE, "first"));
+        assertFalse(index.add(copy, "copy"));
+        assertTrue(index.add(new int[81], "empty"));
+
+        assertEquals(2, index.size());
+        assertEquals("first", index.get(copy));
+        assertEquals("first", index.put(copy, "replaced"));
+        assertEquals("replaced", index.get(puzzle));
+        assertTrue(index.contains(new int[81]));
+        index.clear();
+        assertFalse(index.contains(puzzle));
+    }
+
+    @Test
+    void badGridsAreRejected() {
+        int[] badDigit = new int[81];
+        badDigit[5] = -1;
+
+        assertThrows(IllegalArgumentException.class, () -> SudokuCanonicalizer.canonicalize(new int[80]));
+        assertThrows(IllegalArgumentException.class, () -> SudokuCanonicalizer.canonicalize(badDigit));
+        assertThrows(IllegalArgumentException.class, () -> SudokuCanonicalizer.canonicalString("12"));
+    }
+}
@@ -0,0 +1,139 @@
+package se.kth.alialaa.labb4.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests saving and loading games in the binary format, and loading the serialized saves of earlier versions.
+ */
+class SudokuIOTest {
+    // the offsets of the counters and the checksum in a binary save
+    private static final int FILLED_OFFSET = SudokuIO.SAVE_SIZE - 6;
+    private static final int CHECKSUM_OFFSET = SudokuIO.SAVE_SIZE - 4;
+
+    // baseline.sudoku was written by the first version of the game. Its stored solution has a 3
+    // at (0, 8) where the givens only allow a 2, the player guessed 2 there, and 6 at (0, 0).
+    private static final String BASELINE_GIVENS =
+            "000914070010000054040002000007569001401000500300100000039000408650800030000403260";
+    private static final String BASELINE_SOLUTION =
+            "583914672712386954946752183827569341461238597395147826239675418654821739178493265";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void encodedGameDecodesToTheSameGame() throws IOException {
+        Cells model = new Cells(SudokuUtilities.SudokuLevel.MEDIUM);
+        Board board = model.getBoard();
+        int guesses = 0;
+        for (int index = 0; index < Board.CELL_COUNT && guesses < 6; index++) {
+            if (!board.isGiven(index)) {
+                // right and wrong guesses, every other one
+                int guess = guesses % 2 == 0 ? board.solution(index) : board.solution(index) % 9 + 1;
+                model.guess(Board.row(index), Board.col(index), guess);
+                guesses++;
+            }
+        }
+
+        Cells decoded = SudokuIO.decode(SudokuIO.encode(model));
+
+        assertEquals(model.getLevel(), decoded.getLevel());
+        for (int index = 0; index < Board.CELL_COUNT; index++) {
+            assertEquals(board.value(index), decoded.getBoard().value(index), "value of cell " + index);
+            assertEquals(board.solution(index), decoded.getBoard().solution(index), "solution of cell " + index);
+            assertEquals(board.isGiven(index), decoded.getBoard().isGiven(index), "given cell " + index);
+        }
+        assertEquals(board.wrongCount(), decoded.getBoard().wrongCount());
+    }
+
+    @Test
+    void savedGameLoadsFromFile() throws IOException, ClassNotFoundException {
+        Cells model = new Cells(SudokuUtilities.SudokuLevel.EASY);
+        File file = tempDir.resolve("game.sudoku").toFile();
+
+        SudokuIO.SaveGame(file, model);
+
+        assertEquals(SudokuIO.SAVE_SIZE, file.length());
+        assertEquals(model.toString(), SudokuIO.LoadGame(file).toString());
+    }
+
+    @Test
+    void flippedByteIsRejected() {
+        ByteBuffer save = SudokuIO.encode(new Cells(SudokuUtilities.SudokuLevel.EASY));
+        save.put(20, (byte) (save.get(20) ^ 0x01));
+
+        IOException e = assertThrows(IOException.class, () -> SudokuIO.decode(save));
+        assertTrue(e.getMessage().contains("checksum"), e.getMessage());
+    }
+
+    @Test
+    void countersNotMatchingTheCellsAreRejected() {
+        ByteBuffer save = SudokuIO.encode(new Cells(SudokuUtilities.SudokuLevel.EASY));
+        save.put(FILLED_OFFSET, (byte) (save.get(FILLED_OFFSET) + 1));
+        save.putInt(CHECKSUM_OFFSET, checksum(save));
+
+        IOException e = assertThrows(IOException.class, () -> SudokuIO.decode(save));
+        assertTrue(e.getMessage().contains("counters"), e.getMessage());
+    }
+
+    @Test
+    void truncatedOrForeignDataIsRejected() {
+        ByteBuffer save = SudokuIO.encode(new Cells(SudokuUtilities.SudokuLevel.EASY));
+
+        assertThrows(IOException.class, () -> SudokuIO.decode(save.slice(0, SudokuIO.SAVE_SIZE - 1)));
+        assertThrows(IOException.class, () -> SudokuIO.decode(ByteBuffer.allocate(SudokuIO.SAVE_SIZE)));
+    }
+
+    @Test
+    void baselineSaveIsMigratedWithTheRealSolution() throws IOException, ClassNotFoundException {
+        Path file = tempDir.resolve("baseline.sudoku");
+        try (InputStream in = SudokuIOTest.class.getResourceAsStream("baseline.sudoku")) {
+            assertNotNull(in, "baseline.sudoku");
+            Files.copy(in, file);
+        }
+
+        Cells model = SudokuIO.LoadGame(file.toFile());
+        Board board = model.getBoard();
+
+        assertEquals(SudokuUtilities.SudokuLevel.EASY, model.getLevel());
+        for (int index = 0; index < Board.CELL_COUNT; index++) {
+            int given = BASELINE_GIVENS.charAt(index) - '0';
+            assertEquals(given != 0, board.isGiven(index), "given cell " + index);
+            assertEquals(BASELINE_SOLUTION.charAt(index) - '0', board.solution(index), "solution of cell " + index);
+        }
+        assertEquals(2, model.valueAt(0, 8));
+        assertFalse(model.isWrong(0, 8));
+        assertEquals(6, model.valueAt(0, 0));
+        assertTrue(model.isWrong(0, 0));
+        assertEquals(1, board.wrongCount());
+    }
+
+    @Test
+    void serializedObjectsOtherThanAGameAreRejected() throws IOException {
+        Path file = tempDir.resolve("list.sudoku");
+        try (ObjectOutputStream out = new ObjectOutputStream(Files.newOutputStream(file))) {
+            out.writeObject(new ArrayList<>(List.of("not", "a", "game")));
+        }
+
+        assertThrows(IOException.class, () -> SudokuIO.LoadGame(file.toFile()));
+    }
+
+    private static int checksum(ByteBuffer save) {
+        CRC32 crc = new CRC32();
+        crc.update(save.slice(0, CHECKSUM_OFFSET));
+        return (int) crc.getValue();
+    }
+}
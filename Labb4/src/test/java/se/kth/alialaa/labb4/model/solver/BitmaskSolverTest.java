@@ -0,0 +1,12 @@
+package se.kth.alialaa.labb4.model.solver;
+
+/**
+ * Tests the bitmask backtracking engine.
+ */
+class BitmaskSolverTest extends SudokuSolverContract {
+
+    @Override
+    SudokuSolver newSolver() {
+        return new BitmaskSolver();
+    }
+}
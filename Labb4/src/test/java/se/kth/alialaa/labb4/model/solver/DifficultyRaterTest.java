@@ -0,0 +1,59 @@
+package se.kth.alialaa.labb4.model.solver;
+
+import org.junit.jupiter.api.Test;
+import se.kth.alialaa.labb4.model.SudokuUtilities;
+import se.kth.alialaa.labb4.model.SudokuUtilities.SudokuLevel;
+import se.kth.alialaa.labb4.model.solver.DifficultyRater.Rating;
+import se.kth.alialaa.labb4.model.solver.HumanSolver.Technique;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests rating puzzles by the human techniques they need.
+ */
+class DifficultyRaterTest {
+    private static final String SOLVED =
+            "534678912672195348198342567859761423426853791713924856961537284287419635345286179";
+
+    @Test
+    void gridWithOneEmptyCellIsEasy() {
+        int[] grid = SudokuUtilities.convertStringToIntArray(SOLVED);
+        grid[40] = 0;
+
+        Rating rating = new DifficultyRater().rate(grid);
+
+        assertEquals(Technique.NAKED_SINGLE, rating.hardest());
+        assertEquals(1, rating.steps());
+        assertEquals(Technique.NAKED_SINGLE.getWeight(), rating.score());
+        assertEquals(SudokuLevel.EASY, rating.level());
+    }
+
+    @Test
+    void puzzleBeyondTheTechniquesIsHard() {
+        // hard for search and for humans; several other puzzles of the benchmark only need singles
+        int[] grid = SudokuUtilities.convertStringToIntArray(SolverBenchmark.HARD_PUZZLES[0]);
+        int[] copy = grid.clone();
+
+        Rating rating = new DifficultyRater().rate(grid);
+
+        assertEquals(SudokuLevel.HARD, rating.level());
+        assertTrue(rating.score() >= rating.hardest().getWeight());
+        assertArrayEquals(copy, grid);
+    }
+
+    @Test
+    void stuckPuzzleNeedsTrialAndError() {
+        Rating rating = new DifficultyRater().rate(new int[81]);
+
+        assertEquals(Technique.TRIAL_AND_ERROR, rating.hardest());
+        assertEquals(SudokuLevel.HARD, rating.level());
+    }
+
+    @Test
+    void levelsFollowTheHardestTechnique() {
+        assertEquals(SudokuLevel.EASY, new Rating(0, Technique.HIDDEN_SINGLE, 0).level());
+        assertEquals(SudokuLevel.MEDIUM, new Rating(0, Technique.LOCKED_CANDIDATES, 0).level());
+        assertEquals(SudokuLevel.MEDIUM, new Rating(0, Technique.NAKED_TRIPLE, 0).level());
+        assertEquals(SudokuLevel.HARD, new Rating(0, Technique.X_WING, 0).level());
+    }
+}
@@ -0,0 +1,12 @@
+package se.kth.alialaa.labb4.model.solver;
+
+/**
+ * Tests the Dancing Links engine.
+ */
+class DlxSolverTest extends SudokuSolverContract {
+
+    @Override
+    SudokuSolver newSolver() {
+        return new DlxSolver();
+    }
+}
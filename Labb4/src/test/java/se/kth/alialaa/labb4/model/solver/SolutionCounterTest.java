@@ -0,0 +1,100 @@
+package se.kth.alialaa.labb4.model.solver;
+
+import org.junit.jupiter.api.Test;
+import se.kth.alialaa.labb4.model.SudokuUtilities;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests counting solutions on the fork-join pool and streaming them.
+ */
+class SolutionCounterTest {
+    private static final String SOLVED =
+            "534678912672195348198342567859761423426853791713924856961537284287419635345286179";
+
+    @Test
+    void countsStopAtTheLimit() {
+        SolutionCounter counter = new SolutionCounter();
+
+        assertEquals(1, counter.countSolutions(SudokuUtilities.convertStringToIntArray(SolverBenchmark.HARD_PUZZLES[0]), 2));
+        assertEquals(50, counter.countSolutions(new int[81], 50));
+        assertTrue(counter.hasUniqueSolution(SudokuUtilities.convertStringToIntArray(SOLVED)));
+    }
+
+    @Test
+    void streamFindsEverySolutionOnce() {
+        int[] grid = withRectangleEmptied();
+        int[] copy = grid.clone();
+
+        List<int[]> solutions = SolutionCounter.solutions(grid).toList();
+
+        assertEquals(2, solutions.size());
+        assertEquals(2, new SolutionCounter().countSolutions(grid, 10));
+        assertNotEquals(SudokuUtilities.convertIntArrayToString(solutions.get(0)),
+                SudokuUtilities.convertIntArrayToString(solutions.get(1)));
+        for (int[] solution : solutions) {
+            SudokuSolverContract.assertSolves(grid, solution);
+        }
+        assertArrayEquals(copy, grid);
+    }
+
+    @Test
+    void streamOfAnEmptyGridIsLazy() {
+        Set<String> distinct = new HashSet<>();
+
+        SolutionCounter.solutions(new int[81]).limit(1000).forEach(solution -> {
+            SudokuSolverContract.assertSolves(new int[81], solution);
+            distinct.add(SudokuUtilities.convertIntArrayToString(solution));
+        });
+
+        assertEquals(1000, distinct.size());
+    }
+
+    @Test
+    void parallelStreamFindsTheSameSolutions() {
+        // emptying the middle three rows of a solution leaves them with several solutions
+        int[] grid = SudokuUtilities.convertStringToIntArray(SOLVED);
+        for (int index = 27; index < 54; index++) {
+            grid[index] = 0;
+        }
+
+        Set<String> sequential = new HashSet<>();
+        SolutionCounter.solutions(grid).forEach(s -> sequential.add(SudokuUtilities.convertIntArrayToString(s)));
+        Set<String> parallel = new HashSet<>();
+        SolutionCounter.solutions(grid).parallel()
+                .map(SudokuUtilities::convertIntArrayToString)
+                .toList()
+                .forEach(parallel::add);
+
+        assertTrue(sequential.size() > 1, "solutions " + sequential.size());
+        assertEquals(sequential, parallel);
+        assertEquals(sequential.size(), new SolutionCounter().countSolutions(grid, Integer.MAX_VALUE));
+        assertEquals(sequential.size(), SolutionCounter.solutions(grid).parallel().count());
+    }
+
+    @Test
+    void clashingGivensHaveNoSolutions() {
+        int[] grid = new int[81];
+        grid[0] = 3;
+        grid[80] = 3;
+        grid[72] = 3;
+
+        assertEquals(0, SolutionCounter.solutions(grid).count());
+        assertEquals(0, new SolutionCounter().countSolutions(grid, 2));
+        assertThrows(IllegalArgumentException.class, () -> SolutionCounter.solutions(new int[82]));
+    }
+
+    private static int[] withRectangleEmptied() {
+        // swapping 6 and 7 in these four cells of rows 0 and 3 gives a second solution
+        int[] grid = SudokuUtilities.convertStringToIntArray(SOLVED);
+        grid[3] = 0;
+        grid[4] = 0;
+        grid[30] = 0;
+        grid[31] = 0;
+        return grid;
+    }
+}
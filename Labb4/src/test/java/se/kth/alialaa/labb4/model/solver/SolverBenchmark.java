@@ -0,0 +1,67 @@
+package se.kth.alialaa.labb4.model.solver;
+
+import se.kth.alialaa.labb4.model.SudokuUtilities;
+
+/**
+ * Measures how many hard puzzles per second the solving engines solve on one thread.
+ * Not a test, run it after {@code mvn test-compile} with
+ * {@code java -cp target/classes:target/test-classes se.kth.alialaa.labb4.model.solver.SolverBenchmark}.
+ */
+public class SolverBenchmark {
+    /**
+     * Eight well-known hard puzzles, the first three need the most search.
+     */
+    static final String[] HARD_PUZZLES = {
+            "800000000003600000070090200050007000000045700000100030001000068008500010090000400",
+            "000000039000001005003050800008090006070002000100400000009080050020000600400700000",
+            "120400300300010050006000100700090000040603000003002000500080700007000005000000098",
+            "100007090030020008009600500005300900010080002600004000300000010040000007007000300",
+            "000000010400000000020000000000050407008000300001090000300400200050100000000806000",
+            "000000000000003085001020000000507000004000100090000000500000073002010000000040009",
+            "000000012000035000000600070700000300000400800100000000000120000080000040050000600",
+            "000000012003600000000007000410020000000500300700000600280000040000300500000000000"
+    };
+
+    private static final long WARM_UP_NANOS = 2_000_000_000L;
+    private static final long RUN_NANOS = 3_000_000_000L;
+
+    private SolverBenchmark() {
+
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args Not used.
+     */
+    public static void main(String[] args) {
+        int[][] puzzles = new int[HARD_PUZZLES.length][];
+        for (int n = 0; n < puzzles.length; n++) {
+            puzzles[n] = SudokuUtilities.convertStringToIntArray(HARD_PUZZLES[n]);
+        }
+        report("BitmaskSolver", new BitmaskSolver(), puzzles);
+        report("DlxSolver", new DlxSolver(), puzzles);
+    }
+
+    private static void report(String name, SudokuSolver solver, int[][] puzzles) {
+        run(solver, puzzles, WARM_UP_NANOS, false);
+        System.out.printf("%-14s solve: %8.0f puzzles/s, unique check: %8.0f puzzles/s%n",
+                name, run(solver, puzzles, RUN_NANOS, false), run(solver, puzzles, RUN_NANOS, true));
+    }
+
+    private static double run(SudokuSolver solver, int[][] puzzles, long nanos, boolean count) {
+        long start = System.nanoTime();
+        long solved = 0;
+        long elapsed;
+        do {
+            for (int[] puzzle : puzzles) {
+                if (count ? solver.countSolutions(puzzle, 2) != 1 : solver.solve(puzzle) == null) {
+                    throw new IllegalStateException("not solved: " + SudokuUtilities.convertIntArrayToString(puzzle));
+                }
+                solved++;
+            }
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < nanos);
+        return solved * 1e9 / elapsed;
+    }
+}
@@ -0,0 +1,71 @@
+package se.kth.alialaa.labb4.model.solver;
+
+import org.junit.jupiter.api.Test;
+import se.kth.alialaa.labb4.model.Board;
+import se.kth.alialaa.labb4.model.SudokuUtilities.SudokuLevel;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests generating puzzles with a unique solution.
+ */
+class SudokuGeneratorTest {
+
+    @Test
+    void randomSolutionIsAFullValidGrid() {
+        int[] solution = new SudokuGenerator(new Random(1)).randomSolution();
+
+        SudokuSolverContract.assertSolves(new int[Board.CELL_COUNT], solution);
+    }
+
+    @Test
+    void generatedPuzzlesHaveOneSolutionAndSymmetricGivens() {
+        SudokuGenerator generator = new SudokuGenerator(new Random(2));
+        BitmaskSolver solver = new BitmaskSolver();
+        for (SudokuLevel level : SudokuLevel.values()) {
+            int[][] puzzle = split(generator.generate(level));
+            int[] givens = puzzle[0];
+            int clues = 0;
+            for (int index = 0; index < Board.CELL_COUNT; index++) {
+                assertEquals(givens[index] == 0, givens[Board.CELL_COUNT - 1 - index] == 0, "mirror of cell " + index);
+                if (givens[index] != 0) {
+                    clues++;
+                }
+            }
+
+            SudokuSolverContract.assertSolves(givens, puzzle[1]);
+            assertEquals(1, solver.countSolutions(givens, 2), level.name());
+            // clues are removed in pairs, so the last pair can go one below the target
+            assertTrue(clues >= SudokuGenerator.targetClues(level) - 1, level + " clues " + clues);
+        }
+    }
+
+    @Test
+    void easierLevelsKeepMoreClues() {
+        assertTrue(SudokuGenerator.targetClues(SudokuLevel.EASY) > SudokuGenerator.targetClues(SudokuLevel.MEDIUM));
+        assertTrue(SudokuGenerator.targetClues(SudokuLevel.MEDIUM) > SudokuGenerator.targetClues(SudokuLevel.HARD));
+    }
+
+    @Test
+    void sameSeedGivesTheSamePuzzle() {
+        int[][] first = split(new SudokuGenerator(new Random(3)).generate(SudokuLevel.MEDIUM));
+        int[][] second = split(new SudokuGenerator(new Random(3)).generate(SudokuLevel.MEDIUM));
+
+        assertArrayEquals(first[0], second[0]);
+        assertArrayEquals(first[1], second[1]);
+    }
+
+    /**
+     * Splits a generated matrix into its givens and its solution, each 81 digits in row order.
+     */
+    private static int[][] split(int[][][] matrix) {
+        int[][] grids = new int[2][Board.CELL_COUNT];
+        for (int index = 0; index < Board.CELL_COUNT; index++) {
+            grids[0][index] = matrix[Board.row(index)][Board.col(index)][0];
+            grids[1][index] = matrix[Board.row(index)][Board.col(index)][1];
+        }
+        return grids;
+    }
+}
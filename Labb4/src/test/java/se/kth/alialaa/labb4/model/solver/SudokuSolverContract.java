@@ -0,0 +1,143 @@
+package se.kth.alialaa.labb4.model.solver;
+
+import org.junit.jupiter.api.Test;
+import se.kth.alialaa.labb4.model.SudokuUtilities;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The tests every {@link SudokuSolver} engine must pass. A test class of an engine extends this
+ * class and creates the engine.
+ */
+abstract class SudokuSolverContract {
+    private static final String SOLVED =
+            "534678912672195348198342567859761423426853791713924856961537284287419635345286179";
+
+    /**
+     * Creates the engine to test.
+     *
+     * @return A new engine.
+     */
+    abstract SudokuSolver newSolver();
+
+    /**
+     * Checks that a grid is a valid solution that keeps the givens of a puzzle.
+     *
+     * @param puzzle   The puzzle.
+     * @param solution The solution to check.
+     */
+    static void assertSolves(int[] puzzle, int[] solution) {
+        assertNotNull(solution, "no solution");
+        assertEquals(81, solution.length);
+        for (int index = 0; index < 81; index++) {
+            if (puzzle[index] != 0) {
+                assertEquals(puzzle[index], solution[index], "given cell " + index);
+            }
+        }
+        for (int unit = 0; unit < 9; unit++) {
+            int rows = 0, cols = 0, boxes = 0;
+            for (int n = 0; n < 9; n++) {
+                rows |= 1 << solution[unit * 9 + n];
+                cols |= 1 << solution[n * 9 + unit];
+                boxes |= 1 << solution[(unit / 3 * 3 + n / 3) * 9 + unit % 3 * 3 + n % 3];
+            }
+            assertEquals(0x3FE, rows, "row " + unit);
+            assertEquals(0x3FE, cols, "column " + unit);
+            assertEquals(0x3FE, boxes, "box " + unit);
+        }
+    }
+
+    @Test
+    void solvesHardPuzzles() {
+        SudokuSolver solver = newSolver();
+        for (String puzzle : SolverBenchmark.HARD_PUZZLES) {
+            int[] grid = SudokuUtilities.convertStringToIntArray(puzzle);
+            assertSolves(grid, solver.solve(grid));
+        }
+    }
+
+    @Test
+    void hardPuzzlesHaveOneSolution() {
+        SudokuSolver solver = newSolver();
+        for (String puzzle : SolverBenchmark.HARD_PUZZLES) {
+            assertEquals(1, solver.countSolutions(SudokuUtilities.convertStringToIntArray(puzzle), 2), puzzle);
+        }
+    }
+
+    @Test
+    void gridIsNotModified() {
+        int[] grid = SudokuUtilities.convertStringToIntArray(SolverBenchmark.HARD_PUZZLES[0]);
+        int[] copy = grid.clone();
+
+        newSolver().solve(grid);
+        newSolver().countSolutions(grid, 2);
+
+        assertArrayEquals(copy, grid);
+    }
+
+    @Test
+    void solvedGridIsItsOwnSolution() {
+        int[] grid = SudokuUtilities.convertStringToIntArray(SOLVED);
+
+        assertArrayEquals(grid, newSolver().solve(grid));
+        assertEquals(1, newSolver().countSolutions(grid, 2));
+    }
+
+    @Test
+    void countingStopsAtTheLimit() {
+        SudokuSolver solver = newSolver();
+        int[] empty = new int[81];
+
+        assertEquals(2, solver.countSolutions(empty, 2));
+        assertEquals(100, solver.countSolutions(empty, 100));
+        assertEquals(0, solver.countSolutions(empty, 0));
+        assertSolves(empty, solver.solve(empty));
+    }
+
+    @Test
+    void puzzleWithTwoSolutionsIsNotUnique() {
+        // swapping 6 and 7 in these four cells of rows 0 and 3 gives a second solution
+        int[] grid = SudokuUtilities.convertStringToIntArray(SOLVED);
+        grid[3] = 0;
+        grid[4] = 0;
+        grid[30] = 0;
+        grid[31] = 0;
+
+        assertEquals(2, newSolver().countSolutions(grid, 2));
+        assertEquals(2, newSolver().countSolutions(grid, 10));
+    }
+
+    @Test
+    void clashingGivensHaveNoSolution() {
+        int[] grid = new int[81];
+        grid[0] = 5;
+        grid[8] = 5;
+        SudokuSolver solver = newSolver();
+
+        assertNull(solver.solve(grid));
+        assertEquals(0, solver.countSolutions(grid, 2));
+    }
+
+    @Test
+    void badGridsAreRejected() {
+        SudokuSolver solver = newSolver();
+        int[] badDigit = new int[81];
+        badDigit[40] = 10;
+
+        assertThrows(IllegalArgumentException.class, () -> solver.solve(new int[80]));
+        assertThrows(IllegalArgumentException.class, () -> solver.countSolutions(badDigit, 2));
+    }
+
+    @Test
+    void engineCanBeReused() {
+        SudokuSolver solver = newSolver();
+        int[] first = SudokuUtilities.convertStringToIntArray(SolverBenchmark.HARD_PUZZLES[0]);
+        int[] second = SudokuUtilities.convertStringToIntArray(SolverBenchmark.HARD_PUZZLES[1]);
+
+        int[] expected = solver.solve(first);
+        solver.solve(second);
+        solver.countSolutions(new int[81], 10);
+
+        assertArrayEquals(expected, solver.solve(first));
+    }
+}